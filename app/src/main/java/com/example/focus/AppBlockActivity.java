@@ -87,6 +87,19 @@ public class AppBlockActivity extends AppCompatActivity {
         getOnBackPressedDispatcher().addCallback(this, callback);
     }
 
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        // singleTask: a repeat launch lands here instead of onCreate
+        setIntent(intent);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        LockLatencyMetrics.onOverlayResumed(getIntent());
+    }
+
     private void loadAppInfo(String packageName) {
         try {
             PackageManager pm = getPackageManager();
@@ -124,7 +137,7 @@ public class AppBlockActivity extends AppCompatActivity {
             long unlockTime = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(24);
 
             // Save the bypass time specific to the app's package name
-            editor.putLong("BYPASS_" + mBlockedPackageName, unlockTime);
+            editor.putLong(AppLockService.PREF_BYPASS_PREFIX + mBlockedPackageName, unlockTime);
             editor.apply();
 
             Toast.makeText(this, "Access Granted.", Toast.LENGTH_SHORT).show();
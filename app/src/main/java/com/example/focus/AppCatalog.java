@@ -0,0 +1,333 @@
+package com.example.focus;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.core.content.ContextCompat;
+import androidx.core.content.pm.PackageInfoCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// The launchable apps installed on this device, for the parental controls app lists.
+// Built once per process by a full scan on a background thread (one launcher query plus one
+// package list call), then kept up to date one package at a time from the package
+// added/removed/replaced broadcasts, so reading it is an in-memory lookup. On API 26+
+// getChangedPackages() catches anything a broadcast did not deliver.
+// Labels are cached across launches, keyed by package and invalidated by
+// versionCode/lastUpdateTime, so even the first scan only loads labels of apps that were
+// installed or updated since. Icons are decoded on demand into a bounded LRU cache.
+public final class AppCatalog {
+
+    private static final String TAG = "AppCatalog";
+
+    private static final String PREFS_NAME = "AppCatalogLabels";
+    private static final int ICON_SIZE_DP = 40;
+
+    public static final class App {
+        public final String packageName;
+        public final String label;
+        public final int category; // ApplicationInfo.CATEGORY_*, CATEGORY_UNDEFINED before API 26
+        public final boolean userInstalled; // not a system app, or an updated one
+        // "versionCode:lastUpdateTime", changes with every install or update; null for apps
+        // read from another device's inventory
+        public final String version;
+
+        App(String packageName, String label, int category, boolean userInstalled, String version) {
+            this.packageName = packageName;
+            this.label = label;
+            this.category = category;
+            this.userInstalled = userInstalled;
+            this.version = version;
+        }
+    }
+
+    // Called on the main thread; the list is sorted by label and never modified afterwards
+    public interface Callback {
+        void onCatalogLoaded(List<App> apps);
+    }
+
+    private static AppCatalog sInstance;
+
+    private final PackageManager mPackageManager;
+    private final String mOwnPackage;
+    private final SharedPreferences mLabels; // packageName -> "versionCode:lastUpdateTime:label"
+    private final ExecutorService mScanExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService mIconExecutor = Executors.newFixedThreadPool(2);
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> mIcons;
+    private final int mIconSizePx;
+
+    // Scan thread only
+    private final Map<String, App> mApps = new HashMap<>();
+    private int mSequenceNumber; // for getChangedPackages()
+
+    private volatile List<App> mSnapshot; // null until the first scan has finished
+    private final List<Callback> mListeners = new ArrayList<>(); // main thread
+
+    private AppCatalog(Context context) {
+        mPackageManager = context.getPackageManager();
+        mOwnPackage = context.getPackageName();
+        mLabels = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mIconSizePx = Math.round(ICON_SIZE_DP * context.getResources().getDisplayMetrics().density);
+
+        int maxKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 16);
+        mIcons = new LruCache<String, Bitmap>(maxKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+        };
+
+        // Implicit package broadcasts only reach receivers registered at runtime
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED); // components enabled/disabled
+        filter.addDataScheme("package");
+        ContextCompat.registerReceiver(context, new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onPackageBroadcast(intent);
+            }
+        }, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
+
+    public static synchronized AppCatalog get(Context context) {
+        if (sInstance == null) {
+            sInstance = new AppCatalog(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    // Delivers the catalog, right away if it has been built already
+    public void load(Callback callback) {
+        List<App> snapshot = mSnapshot;
+        if (snapshot != null) {
+            mMainHandler.post(() -> callback.onCatalogLoaded(snapshot));
+            mScanExecutor.execute(this::applyMissedChanges);
+            return;
+        }
+        mScanExecutor.execute(() -> {
+            if (mSnapshot == null) fullScan();
+            List<App> apps = mSnapshot;
+            mMainHandler.post(() -> callback.onCatalogLoaded(apps));
+        });
+    }
+
+    // Told about every later change to the catalog, until removed
+    public void addListener(Callback listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Callback listener) {
+        mListeners.remove(listener);
+    }
+
+    // Last known label of a package without asking the PackageManager, or null
+    public String getCachedLabel(String packageName) {
+        String[] cached = splitCachedLabel(mLabels.getString(packageName, null));
+        return cached != null ? cached[2] : null;
+    }
+
+    // Shows the app's icon in 'view', decoding it in the background if it is not cached.
+    // Safe with recycled views: a late icon is dropped if the view has moved on.
+    public void loadIcon(ImageView view, String packageName) {
+        view.setTag(packageName);
+        Bitmap cached = mIcons.get(packageName);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        view.setImageResource(android.R.drawable.sym_def_app_icon);
+        mIconExecutor.execute(() -> {
+            Bitmap icon = renderIcon(packageName, mIconSizePx);
+            if (icon == null) return;
+            mMainHandler.post(() -> {
+                mIcons.put(packageName, icon);
+                if (packageName.equals(view.getTag())) {
+                    view.setImageBitmap(icon);
+                }
+            });
+        });
+    }
+
+    // --- Internals (background threads) ---
+
+    private void fullScan() {
+        long start = System.currentTimeMillis();
+
+        Map<String, PackageInfo> packages = new HashMap<>();
+        for (PackageInfo info : mPackageManager.getInstalledPackages(0)) {
+            packages.put(info.packageName, info);
+        }
+
+        Intent launcher = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER);
+        List<ResolveInfo> launchables = mPackageManager.queryIntentActivities(launcher, 0);
+
+        mApps.clear();
+        SharedPreferences.Editor labelEdits = mLabels.edit();
+        for (ResolveInfo resolveInfo : launchables) {
+            ApplicationInfo appInfo = resolveInfo.activityInfo.applicationInfo;
+            if (appInfo.packageName.equals(mOwnPackage) || mApps.containsKey(appInfo.packageName)) continue;
+            mApps.put(appInfo.packageName, toApp(appInfo, packages.get(appInfo.packageName), labelEdits));
+        }
+
+        // Forget uninstalled apps
+        for (String packageName : mLabels.getAll().keySet()) {
+            if (!mApps.containsKey(packageName)) labelEdits.remove(packageName);
+        }
+        labelEdits.apply();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            ChangedPackages changed = mPackageManager.getChangedPackages(0);
+            mSequenceNumber = changed != null ? changed.getSequenceNumber() : 0;
+        }
+        mSnapshot = sortedSnapshot();
+        Log.d(TAG, "Scanned " + mApps.size() + " apps in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void onPackageBroadcast(Intent intent) {
+        if (intent.getData() == null) return;
+        String packageName = intent.getData().getSchemeSpecificPart();
+        if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+            return; // an update; PACKAGE_REPLACED follows
+        }
+        mScanExecutor.execute(() -> {
+            if (mSnapshot == null) return; // the first scan will see it
+            if (refreshPackage(packageName)) publish(Collections.singletonList(packageName));
+        });
+    }
+
+    // Picks up package changes whose broadcast we did not get, e.g. while the process was frozen
+    private void applyMissedChanges() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || mSnapshot == null) return;
+        ChangedPackages changed = mPackageManager.getChangedPackages(mSequenceNumber);
+        if (changed == null) return;
+
+        mSequenceNumber = changed.getSequenceNumber();
+        List<String> updated = new ArrayList<>();
+        for (String packageName : changed.getPackageNames()) {
+            if (refreshPackage(packageName)) updated.add(packageName);
+        }
+        if (!updated.isEmpty()) publish(updated);
+    }
+
+    // Re-reads one package. Returns true if the catalog changed.
+    private boolean refreshPackage(String packageName) {
+        if (packageName.equals(mOwnPackage)) return false;
+
+        Intent launcher = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER).setPackage(packageName);
+        List<ResolveInfo> launchables = mPackageManager.queryIntentActivities(launcher, 0);
+        PackageInfo packageInfo = null;
+        if (!launchables.isEmpty()) {
+            try {
+                packageInfo = mPackageManager.getPackageInfo(packageName, 0);
+            } catch (PackageManager.NameNotFoundException e) {
+                // Removed in the meantime
+            }
+        }
+
+        if (packageInfo == null) {
+            mLabels.edit().remove(packageName).apply();
+            return mApps.remove(packageName) != null;
+        }
+
+        SharedPreferences.Editor labelEdits = mLabels.edit();
+        mApps.put(packageName, toApp(launchables.get(0).activityInfo.applicationInfo, packageInfo, labelEdits));
+        labelEdits.apply();
+        return true;
+    }
+
+    // Hands the new catalog to the listeners; the changed packages may have new icons
+    private void publish(List<String> changedPackages) {
+        List<App> snapshot = sortedSnapshot();
+        mSnapshot = snapshot;
+        mMainHandler.post(() -> {
+            for (String packageName : changedPackages) {
+                mIcons.remove(packageName);
+            }
+            for (Callback listener : new ArrayList<>(mListeners)) {
+                listener.onCatalogLoaded(snapshot);
+            }
+        });
+    }
+
+    private List<App> sortedSnapshot() {
+        List<App> apps = new ArrayList<>(mApps.values());
+        Collections.sort(apps, (a, b) -> a.label.compareToIgnoreCase(b.label));
+        return Collections.unmodifiableList(apps);
+    }
+
+    // Uses the cached label unless the package has changed since it was stored
+    private App toApp(ApplicationInfo appInfo, PackageInfo packageInfo, SharedPreferences.Editor labelEdits) {
+        String packageName = appInfo.packageName;
+        String version = packageInfo != null
+                ? PackageInfoCompat.getLongVersionCode(packageInfo) + ":" + packageInfo.lastUpdateTime
+                : "0:0";
+        String[] cached = splitCachedLabel(mLabels.getString(packageName, null));
+        String label;
+        if (cached != null && version.equals(cached[0] + ":" + cached[1])) {
+            label = cached[2];
+        } else {
+            label = appInfo.loadLabel(mPackageManager).toString();
+            labelEdits.putString(packageName, version + ":" + label);
+        }
+        return new App(packageName, label, categoryOf(appInfo), isUserInstalled(appInfo), version);
+    }
+
+    // The app's icon drawn at sizePx square, or null if it is not installed. Any thread.
+    Bitmap renderIcon(String packageName, int sizePx) {
+        try {
+            Drawable drawable = mPackageManager.getApplicationIcon(packageName);
+            Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            drawable.setBounds(0, 0, sizePx, sizePx);
+            drawable.draw(canvas);
+            return bitmap;
+        } catch (PackageManager.NameNotFoundException e) {
+            return null; // not installed here, keep the placeholder
+        }
+    }
+
+    static int categoryOf(ApplicationInfo appInfo) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? appInfo.category : ApplicationInfo.CATEGORY_UNDEFINED;
+    }
+
+    static boolean isUserInstalled(ApplicationInfo appInfo) {
+        return (appInfo.flags & ApplicationInfo.FLAG_SYSTEM) == 0
+                || (appInfo.flags & ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) != 0;
+    }
+
+    // "versionCode:lastUpdateTime:label" -> the three parts (the label may contain ':')
+    private static String[] splitCachedLabel(String value) {
+        if (value == null) return null;
+        String[] parts = value.split(":", 3);
+        return parts.length == 3 ? parts : null;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.focus;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Uploads the child device's launchable apps to users/{childId}/inventory/{packageName}, so
+// the parent picks from the apps the child actually has. Each document carries the label,
+// category and a 64-bit average hash of the icon. What was uploaded is remembered per app as
+// "version|contentHash": apps whose version is unchanged are skipped without touching their
+// icon, and an updated app is only re-sent if its content hash changed.
+public final class AppInventorySync {
+
+    private static final String TAG = "AppInventorySync";
+
+    public static final String COLLECTION_INVENTORY = "inventory";
+    public static final String FIELD_LABEL = "label";
+    public static final String FIELD_CATEGORY = "category";
+    public static final String FIELD_USER_INSTALLED = "userInstalled";
+    public static final String FIELD_ICON_HASH = "iconHash";
+    public static final String FIELD_CONTENT_HASH = "contentHash";
+
+    private static final String PREFS_PREFIX = "AppInventory.";
+    private static final int MAX_BATCH_WRITES = 500;
+    private static final int ICON_HASH_SIZE = 8; // 8x8 pixels -> 64 bits
+
+    private static AppInventorySync sInstance;
+
+    private final Context mContext;
+    private final FirebaseFirestore mStore = FirebaseFirestore.getInstance();
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    private AppInventorySync(Context context) {
+        mContext = context;
+    }
+
+    public static synchronized AppInventorySync get(Context context) {
+        if (sInstance == null) {
+            sInstance = new AppInventorySync(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    public static CollectionReference inventory(FirebaseFirestore store, String childId) {
+        return store.collection("users").document(childId).collection(COLLECTION_INVENTORY);
+    }
+
+    // Sends whatever changed since the last sync of this child's inventory
+    public void sync(String childId) {
+        AppCatalog.get(mContext).load(apps -> mExecutor.execute(() -> upload(childId, apps)));
+    }
+
+    // --- Internals (mExecutor) ---
+
+    private void upload(String childId, List<AppCatalog.App> apps) {
+        // One prefs file per account, in case several children share a device
+        SharedPreferences uploaded = mContext.getSharedPreferences(PREFS_PREFIX + childId, Context.MODE_PRIVATE);
+        Map<String, ?> previous = uploaded.getAll();
+        AppCatalog catalog = AppCatalog.get(mContext);
+        CollectionReference inventory = inventory(mStore, childId);
+
+        Map<String, String> newState = new HashMap<>();
+        List<WriteBatch> batches = new ArrayList<>();
+        WriteBatch batch = mStore.batch();
+        int writes = 0;
+
+        Set<String> installed = new HashSet<>();
+        for (AppCatalog.App app : apps) {
+            installed.add(app.packageName);
+            String[] last = split((String) previous.get(app.packageName));
+            if (last != null && last[0].equals(app.version)) continue; // unchanged install
+
+            String iconHash = iconHash(catalog.renderIcon(app.packageName, ICON_HASH_SIZE));
+            String contentHash = contentHash(app.label, app.category, app.userInstalled, iconHash);
+            newState.put(app.packageName, app.version + "|" + contentHash);
+            if (last != null && last[1].equals(contentHash)) continue; // updated, but looks the same
+
+            Map<String, Object> doc = new HashMap<>();
+            doc.put(FIELD_LABEL, app.label);
+            doc.put(FIELD_CATEGORY, app.category);
+            doc.put(FIELD_USER_INSTALLED, app.userInstalled);
+            doc.put(FIELD_ICON_HASH, iconHash);
+            doc.put(FIELD_CONTENT_HASH, contentHash);
+            batch.set(inventory.document(app.packageName), doc);
+            if (++writes == MAX_BATCH_WRITES) {
+                batches.add(batch);
+                batch = mStore.batch();
+                writes = 0;
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String packageName : previous.keySet()) {
+            if (installed.contains(packageName)) continue;
+            removed.add(packageName);
+            batch.delete(inventory.document(packageName));
+            if (++writes == MAX_BATCH_WRITES) {
+                batches.add(batch);
+                batch = mStore.batch();
+                writes = 0;
+            }
+        }
+        if (writes > 0) batches.add(batch);
+
+        try {
+            for (WriteBatch pending : batches) {
+                Tasks.await(pending.commit());
+            }
+        } catch (Exception e) {
+            // Nothing is marked as uploaded, so the next sync sends it all again
+            Log.w(TAG, "Inventory upload failed", e);
+            return;
+        }
+
+        SharedPreferences.Editor editor = uploaded.edit();
+        for (Map.Entry<String, String> entry : newState.entrySet()) {
+            editor.putString(entry.getKey(), entry.getValue());
+        }
+        for (String packageName : removed) {
+            editor.remove(packageName);
+        }
+        editor.apply();
+        Log.d(TAG, "Inventory synced: " + newState.size() + " changed, " + removed.size() + " removed, "
+                + apps.size() + " installed");
+    }
+
+    // Average hash: one bit per pixel of the 8x8 icon, set when brighter than the mean.
+    // Tells icons apart cheaply without uploading any image data.
+    private static String iconHash(Bitmap icon) {
+        if (icon == null) return "";
+        int[] pixels = new int[ICON_HASH_SIZE * ICON_HASH_SIZE];
+        icon.getPixels(pixels, 0, ICON_HASH_SIZE, 0, 0, ICON_HASH_SIZE, ICON_HASH_SIZE);
+
+        int[] luma = new int[pixels.length];
+        long sum = 0;
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            // Transparent corners count as white, so adaptive icon masks don't dominate
+            int alpha = Color.alpha(p);
+            int r = (Color.red(p) * alpha + 255 * (255 - alpha)) / 255;
+            int g = (Color.green(p) * alpha + 255 * (255 - alpha)) / 255;
+            int b = (Color.blue(p) * alpha + 255 * (255 - alpha)) / 255;
+            luma[i] = (r * 299 + g * 587 + b * 114) / 1000;
+            sum += luma[i];
+        }
+
+        long mean = sum / luma.length;
+        long bits = 0;
+        for (int i = 0; i < luma.length; i++) {
+            if (luma[i] > mean) bits |= 1L << i;
+        }
+        return String.format(Locale.US, "%016x", bits);
+    }
+
+    // FNV-1a over the fields the parent sees
+    private static String contentHash(String label, int category, boolean userInstalled, String iconHash) {
+        String content = label + "\n" + category + "\n" + userInstalled + "\n" + iconHash;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < content.length(); i++) {
+            hash ^= content.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return String.format(Locale.US, "%016x", hash);
+    }
+
+    private static String[] split(String value) {
+        if (value == null) return null;
+        int bar = value.lastIndexOf('|');
+        return bar > 0 ? new String[] {value.substring(0, bar), value.substring(bar + 1)} : null;
+    }
+}
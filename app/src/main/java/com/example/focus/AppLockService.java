@@ -4,102 +4,150 @@ import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class AppLockService extends AccessibilityService {
 
     private static final String TAG = "AppLockService";
-    private static final String SETTINGS_PACKAGE = "com.android.settings";
     private String mPreviousPackage = "";
 
+    // Repeat events for the same (package, LockDecision) collapse into one overlay launch
+    private LaunchCoalescer mLaunchCoalescer = new LaunchCoalescer(0);
+
     public static final String PREF_SETTINGS_LOCK_ACTIVE = "settingsLockActive";
     public static final String PREF_LOCKED_APPS_SET = "lockedAppsSet";
     public static final String PREF_SETTINGS_UNLOCKED_UNTIL = "settingsUnlockedUntil";
+    public static final String PREF_BYPASS_PREFIX = "BYPASS_";
+
+    // Rebuilt off the hot path whenever a lock-related preference changes
+    private volatile LockPolicySnapshot mPolicy = LockPolicySnapshot.EMPTY;
+    private SharedPreferences mPrefs;
+
+    // Timing of the event currently being handled, see LockLatencyMetrics
+    private long mHandlerStartNanos;
+    private long mEventAgeMillis;
+
+    // SharedPreferences only keeps a weak reference to listeners, so hold it in a field
+    private final SharedPreferences.OnSharedPreferenceChangeListener mPolicyListener = (prefs, key) -> {
+        if (isPolicyKey(key)) {
+            reloadPolicy();
+        }
+    };
 
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
-        // ... (this method is correct, no changes needed) ...
         if (event.getEventType() != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
             return;
         }
 
-        String packageName = event.getPackageName() != null ? event.getPackageName().toString() : null;
-        String className = event.getClassName() != null ? event.getClassName().toString() : "";
+        // Latency bookkeeping: two clock reads, no allocation
+        mHandlerStartNanos = SystemClock.elapsedRealtimeNanos();
+        mEventAgeMillis = SystemClock.uptimeMillis() - event.getEventTime();
+
+        // Keep the CharSequence as-is; a String is only built once we have to act on it
+        CharSequence packageName = event.getPackageName();
 
         if (packageName == null) return;
 
-        if (packageName.equals(getPackageName())) {
-            mPreviousPackage = getPackageName();
+        if (TextUtils.equals(packageName, getPackageName())) {
+            // Our own overlay coming up: keep mPreviousPackage pointing at the app underneath it,
+            // but the pending launch is consumed, so reopening that app right after dismissing
+            // the overlay is blocked again rather than taken for a repeat
+            mLaunchCoalescer.reset();
             return;
         }
 
-        SharedPreferences prefs = getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE);
-        boolean isFocusModeActive = prefs.getBoolean(StudentDashboardActivity.PREF_FOCUS_MODE_ACTIVE, false);
+        // The foreground moved to another app, so whatever comes next is a fresh launch
+        if (!TextUtils.equals(mPreviousPackage, packageName)) {
+            mPreviousPackage = packageName.toString();
+            mLaunchCoalescer.reset();
+        }
 
-        if (isFocusModeActive) {
-            // Job A: KIOSK MODE WATCHDOG
-            Log.d(TAG, "Focus Mode is Active. Blocking app: " + packageName);
+        int decision = LockDecision.decide(mPolicy, packageName, event.getClassName(), System.currentTimeMillis());
+        if (decision == LockDecision.NONE) return;
 
-            Intent intent = new Intent(this, FocusModeActivity.class);
-            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
-            startActivity(intent);
+        if (!mLaunchCoalescer.shouldLaunch(packageName, decision, SystemClock.uptimeMillis())) {
+            Log.d(TAG, "Coalesced repeat event for " + packageName + ", overlay already launched.");
+            return;
+        }
 
-        } else {
-            // Job B & C: SETTINGS and BLOCKED APP CHECK
-            boolean isSettingsLockActive = prefs.getBoolean(PREF_SETTINGS_LOCK_ACTIVE, false);
-            Set<String> lockedApps = prefs.getStringSet(PREF_LOCKED_APPS_SET, new HashSet<>());
-            String savedPin = prefs.getString(StudentDashboardActivity.PREF_SECURITY_PIN, null);
-            long currentTime = System.currentTimeMillis();
-
-            if (isSettingsLockActive && savedPin != null) {
-
-                if (className.contains("DeviceAdmin") || className.contains("DevicePolicy")) {
-                    Log.d(TAG, "Device Admin screen detected. Forcing PIN check.");
-                    launchPinCheck("ACTION_DISABLE_ADMIN");
-                    return;
-                }
-
-                if (packageName.equals(SETTINGS_PACKAGE)) {
-                    long unlockUntil = prefs.getLong(PREF_SETTINGS_UNLOCKED_UNTIL, 0);
-                    if (currentTime > unlockUntil) {
-                        Log.d(TAG, "Settings app detected. Launching PIN check.");
-                        launchPinCheck("UNLOCK_SETTINGS");
-                        return;
-                    }
-                }
-            }
+        switch (decision) {
+            case LockDecision.FOCUS_RELAUNCH:
+                Log.d(TAG, "Focus Mode is Active. Blocking app: " + packageName);
+                launchFocusMode();
+                break;
+            case LockDecision.PIN_DISABLE_ADMIN:
+                Log.d(TAG, "Device Admin screen detected. Forcing PIN check.");
+                launchPinCheck("ACTION_DISABLE_ADMIN");
+                break;
+            case LockDecision.PIN_UNLOCK_SETTINGS:
+                Log.d(TAG, "Settings app detected. Launching PIN check.");
+                launchPinCheck("UNLOCK_SETTINGS");
+                break;
+            case LockDecision.APP_BLOCK:
+                Log.w(TAG, "Blocked App: " + packageName + " launched. Launching AppBlockActivity.");
+                launchAppBlock(packageName.toString());
+                break;
+        }
+    }
+
+    private static boolean isPolicyKey(String key) {
+        // A null key means the whole file was cleared
+        return key == null
+                || key.equals(StudentDashboardActivity.PREF_FOCUS_MODE_ACTIVE)
+                || key.equals(StudentDashboardActivity.PREF_SECURITY_PIN)
+                || key.equals(PREF_SETTINGS_LOCK_ACTIVE)
+                || key.equals(PREF_LOCKED_APPS_SET)
+                || key.equals(PREF_SETTINGS_UNLOCKED_UNTIL)
+                || key.startsWith(PREF_BYPASS_PREFIX);
+    }
 
-            if (lockedApps.contains(packageName)) {
-                long appBypassTime = prefs.getLong("BYPASS_" + packageName, 0);
-                if (currentTime > appBypassTime) {
-                    Log.w(TAG, "Blocked App: " + packageName + " launched. Launching AppBlockActivity.");
-                    launchAppBlock(packageName);
-                    return;
-                }
+    private void reloadPolicy() {
+        Map<String, Long> bypassUntil = new HashMap<>();
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (entry.getKey().startsWith(PREF_BYPASS_PREFIX) && entry.getValue() instanceof Long) {
+                bypassUntil.put(entry.getKey().substring(PREF_BYPASS_PREFIX.length()), (Long) entry.getValue());
             }
         }
 
-        mPreviousPackage = packageName;
+        mPolicy = new LockPolicySnapshot(
+                mPrefs.getBoolean(StudentDashboardActivity.PREF_FOCUS_MODE_ACTIVE, false),
+                mPrefs.getBoolean(PREF_SETTINGS_LOCK_ACTIVE, false),
+                mPrefs.getString(StudentDashboardActivity.PREF_SECURITY_PIN, null) != null,
+                mPrefs.getLong(PREF_SETTINGS_UNLOCKED_UNTIL, 0),
+                mPrefs.getStringSet(PREF_LOCKED_APPS_SET, new HashSet<>()),
+                bypassUntil);
+        Log.d(TAG, "Lock policy snapshot rebuilt.");
+    }
+
+    private void launchFocusMode() {
+        Intent intent = new Intent(this, FocusModeActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+        LockLatencyMetrics.onDecision(intent, LockLatencyMetrics.PATH_FOCUS_RELAUNCH, mEventAgeMillis, mHandlerStartNanos);
+        startActivity(intent);
     }
 
     private void launchPinCheck(String actionType) {
-        mPreviousPackage = getPackageName();
         Intent intent = new Intent(this, PinCheckActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
         intent.putExtra("ACTION_TYPE", actionType);
+        LockLatencyMetrics.onDecision(intent, LockLatencyMetrics.PATH_PIN_CHECK, mEventAgeMillis, mHandlerStartNanos);
         startActivity(intent);
     }
 
     private void launchAppBlock(String packageName) {
-        mPreviousPackage = getPackageName();
         Intent intent = new Intent(this, AppBlockActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
         intent.putExtra("BLOCKED_PACKAGE_NAME", packageName);
+        LockLatencyMetrics.onDecision(intent, LockLatencyMetrics.PATH_APP_BLOCK, mEventAgeMillis, mHandlerStartNanos);
         startActivity(intent);
     }
 
@@ -108,19 +156,32 @@ public class AppLockService extends AccessibilityService {
         Log.e(TAG, "Accessibility service interrupted.");
     }
 
+    @Override
+    public void onDestroy() {
+        if (mPrefs != null) {
+            mPrefs.unregisterOnSharedPreferenceChangeListener(mPolicyListener);
+        }
+        super.onDestroy();
+    }
+
     @Override
     protected void onServiceConnected() {
         super.onServiceConnected();
         Log.d(TAG, "Accessibility service connected.");
 
+        mLaunchCoalescer = new LaunchCoalescer(getResources().getInteger(R.integer.lock_launch_coalesce_window_ms));
+
+        mPrefs = getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE);
+        mPrefs.registerOnSharedPreferenceChangeListener(mPolicyListener);
+        reloadPolicy();
+
         // --- THIS IS THE FIX ---
         // Check if the WelcomeActivity is waiting for this service to be enabled.
-        SharedPreferences prefs = getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE);
-        if (prefs.getBoolean(StudentDashboardActivity.PREF_AWAITING_ACCESSIBILITY, false)) {
+        if (mPrefs.getBoolean(StudentDashboardActivity.PREF_AWAITING_ACCESSIBILITY, false)) {
             Log.d(TAG, "Service connected, and WelcomeActivity is waiting. Relaunching app.");
 
             // Clear the flag so this doesn't run every time
-            prefs.edit().putBoolean(StudentDashboardActivity.PREF_AWAITING_ACCESSIBILITY, false).apply();
+            mPrefs.edit().putBoolean(StudentDashboardActivity.PREF_AWAITING_ACCESSIBILITY, false).apply();
 
             // Relaunch WelcomeActivity to the front
             Intent intent = new Intent(this, WelcomeActivity.class);
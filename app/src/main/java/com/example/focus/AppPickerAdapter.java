@@ -0,0 +1,130 @@
+package com.example.focus;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Map;
+
+// Rows of the app picker: category headings and checkable apps. Each search result is
+// diffed on a background thread (submitList), so typing only rebinds the rows that change.
+public class AppPickerAdapter extends ListAdapter<AppPickerAdapter.Row, RecyclerView.ViewHolder> {
+
+    private static final int TYPE_HEADER = 0;
+    private static final int TYPE_APP = 1;
+
+    // Either a heading (app == null) or an app
+    public static final class Row {
+        final String title;
+        final AppCatalog.App app;
+
+        private Row(String title, AppCatalog.App app) {
+            this.title = title;
+            this.app = app;
+        }
+
+        public static Row header(String title) {
+            return new Row(title, null);
+        }
+
+        public static Row app(AppCatalog.App app) {
+            return new Row(null, app);
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF_CALLBACK = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            if (oldItem.app == null || newItem.app == null) {
+                return oldItem.app == newItem.app && oldItem.title.equals(newItem.title);
+            }
+            return oldItem.app.packageName.equals(newItem.app.packageName);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            // Check states are toggled in place (notifyItemChanged), not through a new list
+            return oldItem.app == null || oldItem.app.label.equals(newItem.app.label);
+        }
+    };
+
+    private final Context mContext;
+    private final Map<String, Boolean> mSelection; // packageName -> checked, edited in place
+
+    public AppPickerAdapter(Context context, Map<String, Boolean> selection) {
+        super(DIFF_CALLBACK);
+        mContext = context;
+        mSelection = selection;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position).app == null ? TYPE_HEADER : TYPE_APP;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(mContext);
+        if (viewType == TYPE_HEADER) {
+            return new HeaderViewHolder(inflater.inflate(R.layout.item_app_picker_header, parent, false));
+        }
+        AppViewHolder holder = new AppViewHolder(inflater.inflate(R.layout.item_app_picker, parent, false));
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            String packageName = getItem(position).app.packageName;
+            mSelection.put(packageName, mSelection.get(packageName) != Boolean.TRUE);
+            notifyItemChanged(position);
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Row row = getItem(position);
+        if (holder instanceof HeaderViewHolder) {
+            ((HeaderViewHolder) holder).textCategory.setText(row.title);
+            return;
+        }
+
+        AppViewHolder appHolder = (AppViewHolder) holder;
+        appHolder.textName.setText(row.app.label);
+        appHolder.textPackage.setText(row.app.packageName);
+        appHolder.checkBox.setChecked(mSelection.get(row.app.packageName) == Boolean.TRUE);
+        AppCatalog.get(mContext).loadIcon(appHolder.imageIcon, row.app.packageName);
+    }
+
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        final TextView textCategory;
+
+        HeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textCategory = itemView.findViewById(R.id.textPickerCategory);
+        }
+    }
+
+    static class AppViewHolder extends RecyclerView.ViewHolder {
+        final ImageView imageIcon;
+        final TextView textName;
+        final TextView textPackage;
+        final CheckBox checkBox;
+
+        AppViewHolder(@NonNull View itemView) {
+            super(itemView);
+            imageIcon = itemView.findViewById(R.id.imagePickerAppIcon);
+            textName = itemView.findViewById(R.id.textPickerAppName);
+            textPackage = itemView.findViewById(R.id.textPickerAppPackage);
+            checkBox = itemView.findViewById(R.id.checkPickerApp);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.focus;
+
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.Spinner;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// The "Select Apps to Lock" dialog: a search box, a category filter and the apps grouped by
+// category. Every keystroke cancels the query still running and starts a new one on a
+// background thread against an AppSearchIndex built when the dialog opens, so the UI thread
+// only ever applies finished results.
+public class AppPickerDialog {
+
+    public interface OnAppsPickedListener {
+        // packageName -> locked, for every app the picker showed
+        void onAppsPicked(Map<String, Boolean> selection);
+    }
+
+    private static final String OTHER = "Other";
+
+    private final Activity mActivity;
+    private final List<AppCatalog.App> mApps;
+    private final Map<String, Boolean> mSelection = new HashMap<>();
+    private final OnAppsPickedListener mListener;
+
+    // Apps are grouped and filtered by category title; everything without one is "Other"
+    private final Map<String, String> mCategories = new HashMap<>(); // packageName -> title
+    private final List<String> mCategoryOrder = new ArrayList<>(); // alphabetical, "Other" last
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private AppSearchIndex mIndex; // mExecutor only
+    private Future<?> mPendingQuery;
+    private int mGeneration; // bumped per query; stale results are dropped
+
+    private AlertDialog mDialog;
+    private EditText mEditSearch;
+    private TextView mTextEmpty;
+    private AppPickerAdapter mAdapter;
+    private String mCategory; // null for all categories
+
+    public AppPickerDialog(Activity activity, List<AppCatalog.App> apps, Map<String, Boolean> lockedApps,
+                           OnAppsPickedListener listener) {
+        mActivity = activity;
+        mListener = listener;
+        mApps = new ArrayList<>();
+        for (AppCatalog.App app : apps) {
+            if (!app.userInstalled) continue;
+            mApps.add(app);
+            mSelection.put(app.packageName, lockedApps.get(app.packageName) == Boolean.TRUE);
+        }
+
+        // Titles need a Context, so they are looked up here once rather than per query
+        Map<Integer, String> titles = new HashMap<>();
+        Set<String> used = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (AppCatalog.App app : mApps) {
+            String title = titles.get(app.category);
+            if (title == null) {
+                title = categoryTitle(app.category);
+                titles.put(app.category, title);
+            }
+            mCategories.put(app.packageName, title);
+            used.add(title);
+        }
+        boolean hasOther = used.remove(OTHER);
+        mCategoryOrder.addAll(used);
+        if (hasOther) mCategoryOrder.add(OTHER);
+    }
+
+    public void show() {
+        View view = mActivity.getLayoutInflater().inflate(R.layout.dialog_app_picker, null);
+        mEditSearch = view.findViewById(R.id.editTextAppSearch);
+        mTextEmpty = view.findViewById(R.id.textNoAppsFound);
+
+        RecyclerView recycler = view.findViewById(R.id.recyclerPickerApps);
+        recycler.setLayoutManager(new LinearLayoutManager(mActivity));
+        mAdapter = new AppPickerAdapter(mActivity, mSelection);
+        recycler.setAdapter(mAdapter);
+
+        List<String> spinnerTitles = new ArrayList<>();
+        spinnerTitles.add("All categories");
+        spinnerTitles.addAll(mCategoryOrder);
+        ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(mActivity, R.layout.spinner_item_light_text, spinnerTitles);
+        spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        Spinner spinner = view.findViewById(R.id.spinnerAppCategory);
+        spinner.setAdapter(spinnerAdapter);
+        spinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View v, int position, long id) {
+                String category = position == 0 ? null : mCategoryOrder.get(position - 1);
+                if (TextUtils.equals(category, mCategory)) return;
+                mCategory = category;
+                runQuery();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+
+        mEditSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                runQuery();
+            }
+        });
+
+        mDialog = new AlertDialog.Builder(mActivity, R.style.AlertDialogTheme)
+                .setTitle("Select Apps to Lock (" + mApps.size() + " Found)")
+                .setView(view)
+                .setPositiveButton("Done", (dialog, which) -> mListener.onAppsPicked(mSelection))
+                .setNegativeButton("Cancel", null)
+                .create();
+        mDialog.setOnDismissListener(dialog -> mExecutor.shutdownNow());
+        mDialog.show();
+
+        runQuery();
+    }
+
+    // --- Searching ---
+
+    private void runQuery() {
+        if (mPendingQuery != null) mPendingQuery.cancel(true);
+        final String query = mEditSearch.getText().toString();
+        final String category = mCategory;
+        final int generation = ++mGeneration;
+
+        mPendingQuery = mExecutor.submit(() -> {
+            if (mIndex == null) mIndex = buildIndex(); // first query pays for it, off the UI thread
+            int[] matches = mIndex.search(query);
+            if (matches == null) return; // superseded by a newer keystroke
+            List<AppPickerAdapter.Row> rows = buildRows(matches, query.trim().isEmpty(), category);
+
+            mMainHandler.post(() -> {
+                if (generation != mGeneration || !mDialog.isShowing()) return;
+                mAdapter.submitList(rows);
+                mTextEmpty.setVisibility(rows.isEmpty() ? View.VISIBLE : View.GONE);
+            });
+        });
+    }
+
+    private AppSearchIndex buildIndex() {
+        String[] labels = new String[mApps.size()];
+        String[] packageNames = new String[mApps.size()];
+        for (int i = 0; i < mApps.size(); i++) {
+            labels[i] = mApps.get(i).label;
+            packageNames[i] = mApps.get(i).packageName;
+        }
+        return new AppSearchIndex(labels, packageNames);
+    }
+
+    // Without a query the apps are grouped under category headings; with one they are listed
+    // best match first. A selected category filters both.
+    private List<AppPickerAdapter.Row> buildRows(int[] matches, boolean grouped, String category) {
+        List<AppPickerAdapter.Row> rows = new ArrayList<>();
+        if (category != null || !grouped) {
+            for (int i : matches) {
+                AppCatalog.App app = mApps.get(i);
+                if (category == null || category.equals(mCategories.get(app.packageName))) {
+                    rows.add(AppPickerAdapter.Row.app(app));
+                }
+            }
+            return rows;
+        }
+
+        Map<String, List<AppCatalog.App>> byCategory = new HashMap<>();
+        for (int i : matches) {
+            AppCatalog.App app = mApps.get(i);
+            String title = mCategories.get(app.packageName);
+            List<AppCatalog.App> group = byCategory.get(title);
+            if (group == null) {
+                group = new ArrayList<>();
+                byCategory.put(title, group);
+            }
+            group.add(app);
+        }
+        for (String title : mCategoryOrder) {
+            List<AppCatalog.App> group = byCategory.get(title);
+            if (group == null) continue;
+            rows.add(AppPickerAdapter.Row.header(title));
+            for (AppCatalog.App app : group) {
+                rows.add(AppPickerAdapter.Row.app(app));
+            }
+        }
+        return rows;
+    }
+
+    private String categoryTitle(int category) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            CharSequence title = ApplicationInfo.getCategoryTitle(mActivity, category);
+            if (title != null) return title.toString();
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.focus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Search over the app picker's labels and package names, built once per app list.
+// Results are ranked in tiers and keep the list order (alphabetical) within a tier:
+//   0  the label starts with the query             "you"    -> YouTube
+//   1  a later word of the label does              "music"  -> YouTube Music
+//   2  a package segment does                      "katana" -> com.facebook.katana
+//   3  the query occurs anywhere in label or package  "tube"   -> YouTube
+// Prefixes are found by binary search over a sorted word table. Substrings of three or more
+// characters are narrowed down by intersecting trigram posting lists before being checked.
+// Immutable after construction, so searches can run on any thread. Plain Java, so it can
+// be benchmarked on the JVM.
+public final class AppSearchIndex {
+
+    private static final int TIER_LABEL_START = 0;
+    private static final int TIER_LABEL_WORD = 1;
+    private static final int TIER_PACKAGE_SEGMENT = 2;
+    private static final int TIER_SUBSTRING = 3;
+    private static final int TIERS = 4;
+    private static final int NO_MATCH = TIERS;
+
+    private final int mSize;
+    private final String[] mLabels;   // normalized
+    private final String[] mPackages; // normalized
+
+    // Every word of every label and package, sorted; mWordApps/mWordTiers say whose and which kind
+    private final String[] mWords;
+    private final int[] mWordApps;
+    private final byte[] mWordTiers;
+
+    private final Map<Long, int[]> mTrigrams; // trigram -> ascending app indices
+
+    public AppSearchIndex(String[] labels, String[] packageNames) {
+        mSize = labels.length;
+        mLabels = new String[mSize];
+        mPackages = new String[mSize];
+
+        List<WordEntry> words = new ArrayList<>();
+        Map<Long, IntList> trigrams = new HashMap<>();
+        for (int i = 0; i < mSize; i++) {
+            mLabels[i] = normalize(labels[i]);
+            mPackages[i] = normalize(packageNames[i]);
+
+            boolean first = true;
+            for (String word : mLabels[i].split("[^\\p{L}\\p{N}]+")) {
+                if (word.isEmpty()) continue;
+                words.add(new WordEntry(word, i, first ? TIER_LABEL_START : TIER_LABEL_WORD));
+                first = false;
+            }
+            for (String segment : mPackages[i].split("[._]+")) {
+                if (!segment.isEmpty()) words.add(new WordEntry(segment, i, TIER_PACKAGE_SEGMENT));
+            }
+
+            addTrigrams(trigrams, mLabels[i], i);
+            addTrigrams(trigrams, mPackages[i], i);
+        }
+
+        WordEntry[] sorted = words.toArray(new WordEntry[0]);
+        Arrays.sort(sorted, (a, b) -> a.word.compareTo(b.word));
+        mWords = new String[sorted.length];
+        mWordApps = new int[sorted.length];
+        mWordTiers = new byte[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            mWords[i] = sorted[i].word;
+            mWordApps[i] = sorted[i].app;
+            mWordTiers[i] = (byte) sorted[i].tier;
+        }
+
+        mTrigrams = new HashMap<>(trigrams.size() * 2);
+        for (Map.Entry<Long, IntList> entry : trigrams.entrySet()) {
+            mTrigrams.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    // Indices of the matching apps, best first; every app for an empty query.
+    // Returns null if the calling thread is interrupted (the query has been superseded).
+    public int[] search(String query) {
+        String q = normalize(query).trim();
+        if (q.isEmpty()) {
+            int[] all = new int[mSize];
+            for (int i = 0; i < mSize; i++) all[i] = i;
+            return all;
+        }
+
+        int[] tiers = new int[mSize];
+        Arrays.fill(tiers, NO_MATCH);
+
+        // Prefix tiers: the words starting with q are one contiguous run of the sorted table
+        for (int w = lowerBound(q); w < mWords.length && mWords[w].startsWith(q); w++) {
+            int app = mWordApps[w];
+            tiers[app] = Math.min(tiers[app], mWordTiers[w]);
+        }
+        if (Thread.currentThread().isInterrupted()) return null;
+
+        // Substrings (also catches queries spanning words, like "tube mu")
+        if (q.length() >= 3) {
+            int[] candidates = trigramCandidates(q);
+            for (int app : candidates) {
+                if (tiers[app] == NO_MATCH && contains(app, q)) tiers[app] = TIER_SUBSTRING;
+            }
+        } else {
+            for (int app = 0; app < mSize; app++) {
+                if (tiers[app] == NO_MATCH && contains(app, q)) tiers[app] = TIER_SUBSTRING;
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) return null;
+
+        // Counting sort by tier, stable so each tier keeps the list order
+        int[] counts = new int[TIERS + 1];
+        for (int tier : tiers) counts[tier]++;
+        int[] starts = new int[TIERS];
+        for (int t = 1; t < TIERS; t++) starts[t] = starts[t - 1] + counts[t - 1];
+        int[] result = new int[mSize - counts[NO_MATCH]];
+        for (int app = 0; app < mSize; app++) {
+            if (tiers[app] != NO_MATCH) result[starts[tiers[app]]++] = app;
+        }
+        return result;
+    }
+
+    private boolean contains(int app, String q) {
+        return mLabels[app].contains(q) || mPackages[app].contains(q);
+    }
+
+    // Apps containing every trigram of q, ascending
+    private int[] trigramCandidates(String q) {
+        int count = q.length() - 2;
+        int[][] lists = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int[] postings = mTrigrams.get(trigram(q, i));
+            if (postings == null) return new int[0];
+            lists[i] = postings;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length)); // shortest first
+
+        int[] result = lists[0];
+        for (int i = 1; i < count && result.length > 0; i++) {
+            result = intersect(result, lists[i]);
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private int lowerBound(String q) {
+        int lo = 0;
+        int hi = mWords.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mWords[mid].compareTo(q) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void addTrigrams(Map<Long, IntList> trigrams, String text, int app) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            Long key = trigram(text, i);
+            IntList postings = trigrams.get(key);
+            if (postings == null) {
+                postings = new IntList();
+                trigrams.put(key, postings);
+            }
+            postings.addIfLast(app);
+        }
+    }
+
+    private static long trigram(String text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class WordEntry {
+        final String word;
+        final int app;
+        final int tier;
+
+        WordEntry(String word, int app, int tier) {
+            this.word = word;
+            this.app = app;
+            this.tier = tier;
+        }
+    }
+
+    // Growable ascending int list; apps are added in index order
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) return; // same app, trigram seen again
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
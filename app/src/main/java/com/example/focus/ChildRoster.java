@@ -0,0 +1,150 @@
+package com.example.focus;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+// The parent's linked children, in the order they were linked. The ids come from the parent
+// doc's linkedChildIds (kept by LinkAccountActivity), through a ListenerRegistry listener that
+// is shared by every screen observing the roster. Ids and the last known names are also saved
+// locally, so a cold start shows the list before Firestore answers. Main thread only.
+public final class ChildRoster {
+
+    private static final String TAG = "ChildRoster";
+
+    private static final String PREFS_PREFIX = "ChildRoster.";
+    private static final String KEY_IDS = "ids";
+    private static final String KEY_NAME_PREFIX = "name.";
+
+    public interface Listener {
+        void onRosterChanged(List<Child> children);
+    }
+
+    public static final class Child {
+        public final String id;
+        public final String name; // null until the child's doc has been read once
+
+        Child(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static ChildRoster sInstance;
+
+    private final String mParentId;
+    private final SharedPreferences mPrefs;
+    private final FirebaseFirestore mStore = FirebaseFirestore.getInstance();
+    private final Set<Listener> mListeners = new CopyOnWriteArraySet<>();
+
+    private List<String> mIds;
+    private final Map<String, String> mNames = new HashMap<>();
+
+    private ChildRoster(Context context, String parentId) {
+        mParentId = parentId;
+        // One file per account, in case several parents share a device
+        mPrefs = context.getSharedPreferences(PREFS_PREFIX + parentId, Context.MODE_PRIVATE);
+
+        String ids = mPrefs.getString(KEY_IDS, "");
+        mIds = ids.isEmpty() ? Collections.<String>emptyList() : split(ids);
+        for (String id : mIds) {
+            String name = mPrefs.getString(KEY_NAME_PREFIX + id, null);
+            if (name != null) mNames.put(id, name);
+        }
+    }
+
+    public static synchronized ChildRoster get(Context context, String parentId) {
+        if (sInstance == null || !sInstance.mParentId.equals(parentId)) {
+            sInstance = new ChildRoster(context.getApplicationContext(), parentId);
+        }
+        return sInstance;
+    }
+
+    // The last known roster, right away
+    public List<Child> getChildren() {
+        List<Child> children = new ArrayList<>(mIds.size());
+        for (String id : mIds) {
+            children.add(new Child(id, mNames.get(id)));
+        }
+        return children;
+    }
+
+    // Told about every later change until the owner is destroyed; the parent doc is watched
+    // while the owner is started
+    public void addListener(LifecycleOwner owner, Listener listener) {
+        mListeners.add(listener);
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner owner) {
+                mListeners.remove(listener);
+            }
+        });
+        ListenerRegistry.get().listen(owner, mStore.collection("users").document(mParentId), this::onParentSnapshot);
+    }
+
+    // Names live on the children's own docs, which the dashboard already listens to
+    public void setName(String childId, String name) {
+        if (!mIds.contains(childId) || TextUtils.equals(name, mNames.get(childId))) return;
+        mNames.put(childId, name);
+        mPrefs.edit().putString(KEY_NAME_PREFIX + childId, name).apply();
+        notifyListeners();
+    }
+
+    // Every observer's subscription delivers the same snapshots; only the first one changes anything
+    private void onParentSnapshot(DocumentSnapshot parentDoc, boolean restart) {
+        if (!parentDoc.exists()) return;
+
+        List<String> ids = new ArrayList<>();
+        Object linked = parentDoc.get("linkedChildIds");
+        if (linked instanceof List) {
+            for (Object id : (List<?>) linked) {
+                if (id instanceof String && !ids.contains(id)) ids.add((String) id);
+            }
+        }
+        if (ids.equals(mIds)) return; // some other field of the parent changed
+        setIds(ids);
+    }
+
+    private void setIds(List<String> ids) {
+        SharedPreferences.Editor editor = mPrefs.edit();
+        for (String id : mIds) {
+            if (!ids.contains(id)) {
+                mNames.remove(id);
+                editor.remove(KEY_NAME_PREFIX + id);
+            }
+        }
+        mIds = ids;
+        editor.putString(KEY_IDS, TextUtils.join(",", ids)).apply();
+        Log.d(TAG, "Roster changed: " + ids.size() + " children");
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        List<Child> children = getChildren();
+        for (Listener listener : mListeners) {
+            listener.onRosterChanged(children);
+        }
+    }
+
+    private static List<String> split(String joined) {
+        List<String> ids = new ArrayList<>();
+        Collections.addAll(ids, joined.split(","));
+        return ids;
+    }
+}
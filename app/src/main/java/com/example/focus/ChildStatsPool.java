@@ -0,0 +1,210 @@
+package com.example.focus;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Live stats for all of a parent's children, so switching between them on the dashboard is
+// instant and costs no network:
+//   - one whereIn listener over the children's user docs (up to 30 per listener) keeps every
+//     child's totals current
+//   - recent-session listeners are pooled: the last MAX_SESSION_LISTENERS children that were
+//     viewed keep theirs attached, older ones are evicted
+// Weekly hours and streaks come from StatsEngine's reports, which a changed stats revision on
+// the child's doc invalidates, so only the RECENT_SESSION_COUNT newest sessions are listened to.
+// A child whose rollups have not been built yet gets reports from their sessions instead.
+// Listeners detach while the screen is stopped (ListenerRegistry). The computed stats stay
+// cached meanwhile, and are only replaced once the re-attached listener's first snapshot is in.
+// Main thread only.
+public final class ChildStatsPool {
+
+    private static final int MAX_SESSION_LISTENERS = 4;
+    private static final int MAX_WHERE_IN = 30; // Firestore's limit for whereIn
+    public static final int RECENT_SESSION_COUNT = 5;
+
+    public interface Listener {
+        void onChildStatsChanged(String childId);
+    }
+
+    // The aggregates kept on the child's user doc
+    public static final class Summary {
+        public final String name;
+        public final long totalPomodoros;
+        public final double totalHours;
+
+        Summary(String name, long totalPomodoros, double totalHours) {
+            this.name = name;
+            this.totalPomodoros = totalPomodoros;
+            this.totalHours = totalHours;
+        }
+    }
+
+    private static final class SessionSlot {
+        SessionStatsTracker stats; // null until the first snapshot
+        ListenerRegistration registration;
+    }
+
+    private final FirebaseFirestore mStore;
+    private final LifecycleOwner mOwner;
+    private final Listener mListener;
+
+    private List<String> mChildIds = Collections.emptyList();
+    private final List<ListenerRegistration> mSummaryListeners = new ArrayList<>();
+    private final Map<String, Summary> mSummaries = new HashMap<>();
+    // Access-ordered, so the least recently viewed child comes first
+    private final LinkedHashMap<String, SessionSlot> mSessions = new LinkedHashMap<>(8, 0.75f, true);
+
+    // Listeners follow the owner's lifecycle through ListenerRegistry
+    public ChildStatsPool(FirebaseFirestore store, LifecycleOwner owner, Listener listener) {
+        mStore = store;
+        mOwner = owner;
+        mListener = listener;
+    }
+
+    public Summary getSummary(String childId) {
+        return mSummaries.get(childId);
+    }
+
+    // Null until the child's recent sessions have been loaded once; holds only those
+    public SessionStatsTracker getSessionStats(String childId) {
+        SessionSlot slot = mSessions.get(childId);
+        return slot != null ? slot.stats : null;
+    }
+
+    // The parent's linked children; listeners are only rebuilt if the set changed
+    public void setChildren(List<String> childIds) {
+        if (childIds.equals(mChildIds)) return;
+        mChildIds = new ArrayList<>(childIds);
+
+        mSummaries.keySet().retainAll(mChildIds);
+        Iterator<Map.Entry<String, SessionSlot>> it = mSessions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, SessionSlot> entry = it.next();
+            if (mChildIds.contains(entry.getKey())) continue;
+            entry.getValue().registration.remove();
+            it.remove();
+        }
+
+        for (ListenerRegistration registration : mSummaryListeners) {
+            registration.remove();
+        }
+        mSummaryListeners.clear();
+        for (int from = 0; from < mChildIds.size(); from += MAX_WHERE_IN) {
+            listenForSummaries(new ArrayList<>(mChildIds.subList(from, Math.min(from + MAX_WHERE_IN, mChildIds.size()))));
+        }
+    }
+
+    // Keeps this child's sessions live, evicting the least recently viewed child if the pool is full
+    public void watchSessions(String childId) {
+        if (mSessions.get(childId) != null) return; // get() also marks it most recently used
+
+        SessionSlot slot = new SessionSlot();
+        mSessions.put(childId, slot);
+        if (mSessions.size() > MAX_SESSION_LISTENERS) {
+            Iterator<Map.Entry<String, SessionSlot>> eldest = mSessions.entrySet().iterator();
+            eldest.next().getValue().registration.remove();
+            eldest.remove();
+        }
+        listenForSessions(childId, slot);
+    }
+
+    // --- Listeners ---
+
+    private void listenForSummaries(List<String> chunk) {
+        Query query = mStore.collection("users").whereIn(FieldPath.documentId(), chunk);
+        mSummaryListeners.add(ListenerRegistry.get().listen(mOwner, query, (querySnapshot, restart) -> {
+            if (restart) {
+                // Full state; a child whose doc went away while detached has no REMOVED change
+                for (String childId : chunk) {
+                    mSummaries.remove(childId);
+                }
+                for (DocumentSnapshot childDoc : querySnapshot.getDocuments()) {
+                    putSummary(childDoc);
+                }
+                for (String childId : chunk) {
+                    mListener.onChildStatsChanged(childId);
+                }
+                return;
+            }
+
+            for (DocumentChange change : querySnapshot.getDocumentChanges()) {
+                DocumentSnapshot childDoc = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    mSummaries.remove(childDoc.getId());
+                } else {
+                    putSummary(childDoc);
+                }
+                mListener.onChildStatsChanged(childDoc.getId());
+            }
+        }));
+    }
+
+    private void listenForSessions(String childId, SessionSlot slot) {
+        Query query = mStore.collection("users").document(childId).collection("sessions")
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(RECENT_SESSION_COUNT);
+
+        slot.registration = ListenerRegistry.get().listen(mOwner, query, (querySnapshot, restart) -> {
+            if (restart) {
+                // A fresh tracker: removals missed while detached would linger in the old one.
+                // Until now the old one kept being shown.
+                SessionStatsTracker stats = new SessionStatsTracker();
+                for (DocumentSnapshot sessionDoc : querySnapshot.getDocuments()) {
+                    applySession(stats, sessionDoc, false);
+                }
+                slot.stats = stats;
+            } else {
+                // Only the document changes are applied, so a new session costs O(log n), not a full rescan
+                for (DocumentChange change : querySnapshot.getDocumentChanges()) {
+                    applySession(slot.stats, change.getDocument(), change.getType() == DocumentChange.Type.REMOVED);
+                }
+            }
+            mListener.onChildStatsChanged(childId);
+        });
+    }
+
+    private void putSummary(DocumentSnapshot childDoc) {
+        Summary summary = summaryOf(childDoc);
+        mSummaries.put(childDoc.getId(), summary);
+        // New sessions show up here first; the child's own writes invalidate only their device.
+        // Builds without rollups do not bump the stats revision, but still count sessions.
+        boolean rollupsBuilt = SessionRollups.isBuilt(childDoc);
+        long revision = summary.totalPomodoros;
+        if (rollupsBuilt) {
+            Long statsRevision = childDoc.getLong(SessionRollups.FIELD_STATS_REVISION);
+            revision = statsRevision != null ? statsRevision : 0;
+        }
+        StatsEngine.get().invalidateIfChanged(childDoc.getId(), revision, rollupsBuilt);
+    }
+
+    private static void applySession(SessionStatsTracker stats, DocumentSnapshot sessionDoc, boolean removed) {
+        Long timestamp = sessionDoc.getLong("timestamp");
+        Long duration = sessionDoc.getLong("durationMinutes");
+        if (removed || timestamp == null || duration == null) {
+            stats.remove(sessionDoc.getId());
+        } else {
+            stats.put(sessionDoc.getId(), timestamp, duration);
+        }
+    }
+
+    private static Summary summaryOf(DocumentSnapshot childDoc) {
+        Long totalPomos = childDoc.getLong("totalPomodoros");
+        Double totalHours = childDoc.getDouble("totalHours");
+        return new Summary(childDoc.getString("firstName") + " " + childDoc.getString("lastName"),
+                totalPomos != null ? totalPomos : 0,
+                totalHours != null ? totalHours : 0.0);
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.focus;
 
+import android.content.ComponentName;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.os.CountDownTimer;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -23,17 +28,16 @@ import androidx.appcompat.widget.Toolbar;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.FieldValue;
 
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class FocusModeActivity extends AppCompatActivity {
 
     private static final String TAG = "FocusModeActivity";
 
+    private static final long BREAK_DURATION_MILLIS = 5 * 60 * 1000; // 5 minutes
+
     private long mFocusDurationMillis; // The *total* duration for this session
 
     // Firebase
@@ -48,13 +52,65 @@ public class FocusModeActivity extends AppCompatActivity {
     private Button mEmergencyExitButton;
     private ImageButton mPausePlayButton, mResetButton, mButtonStartBreak;
 
-    // Timer
-    private CountDownTimer mCountDownTimer;
-    private long mTimeLeftInMillis;
-    private boolean mTimerRunning = false;
-    private boolean mIsPaused = false;
-    private boolean mIsInBreak = false;
+    // Timer (owned by FocusSessionService; this screen only renders it)
+    private FocusSessionService mSessionService;
+    private FocusSession mSession;
+    private FocusSession mInitialSession; // used only if the service has no session yet
+    private int mInitialUndeliveredPhase = -1; // relaunch: a finished phase the checkpoint still holds
+    private boolean mStudentDataLoaded = false;
+    private boolean mStartWhenBound = false; // relaunch: re-lock as soon as the session is available
     private boolean mKioskModeActive = false; // Tracks if startLockTask has been called
+    private final Handler mTickHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mTick = this::onTick;
+
+    private final ServiceConnection mSessionConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            mSessionService = ((FocusSessionService.LocalBinder) binder).getService();
+            mSession = mSessionService.beginIfIdle(mInitialSession, mInitialUndeliveredPhase);
+            mFocusDurationMillis = mSession.getFocusDurationMillis();
+            if (mStudentDataLoaded) {
+                updateSessionOwner();
+            } else if (mSession.getUserId() == null) {
+                mSessionService.setOwner(mUserId, null, null); // at least log it; the parent follows once loaded
+            }
+            render();
+            // May deliver a phase that finished while unbound, which clears mStartWhenBound
+            mSessionService.setListener(mSessionListener);
+
+            if (mStartWhenBound) {
+                mStartWhenBound = false;
+                if (!mSession.isRunning()) startTimer();
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            mSessionService = null;
+            mSession = null;
+        }
+    };
+
+    private final FocusSessionService.Listener mSessionListener = new FocusSessionService.Listener() {
+        @Override
+        public void onSessionChanged(FocusSession session) {
+            render();
+        }
+
+        @Override
+        public void onPhaseFinished(int phase) {
+            mStartWhenBound = false; // the finished phase decides what happens next, not the relaunch
+            if (phase == FocusSession.PHASE_BREAK) {
+                Toast.makeText(FocusModeActivity.this, "Break is over! Resuming focus.", Toast.LENGTH_LONG).show();
+                render();
+                startTimer();
+            } else {
+                mKioskModeActive = false;
+                Toast.makeText(FocusModeActivity.this, "Session saved!", Toast.LENGTH_SHORT).show();
+                showFinishedDialog();
+            }
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -82,7 +138,13 @@ public class FocusModeActivity extends AppCompatActivity {
         if (isRelaunch) {
             Log.d(TAG, "Relaunching in active focus mode.");
             mFocusDurationMillis = prefs.getLong(StudentDashboardActivity.PREF_LAST_FOCUS_DURATION, defaultDuration);
-            mTimeLeftInMillis = prefs.getLong(StudentDashboardActivity.PREF_REMAINING_FOCUS_TIME, mFocusDurationMillis);
+            // The process may have died mid-session; the last checkpoint knows where the clock was
+            mInitialSession = FocusSessionCheckpoint.load(this);
+            if (mInitialSession == null) {
+                mInitialSession = new FocusSession(mFocusDurationMillis, mFocusDurationMillis);
+            } else {
+                mInitialUndeliveredPhase = FocusSessionCheckpoint.loadUndeliveredPhase(this);
+            }
 
         } else {
             long intentDuration = getIntent().getLongExtra("FOCUS_DURATION", 0);
@@ -91,7 +153,7 @@ public class FocusModeActivity extends AppCompatActivity {
             } else {
                 mFocusDurationMillis = prefs.getLong(StudentDashboardActivity.PREF_FOCUS_DURATION_MILLIS, defaultDuration);
             }
-            mTimeLeftInMillis = mFocusDurationMillis;
+            mInitialSession = new FocusSession(mFocusDurationMillis, mFocusDurationMillis);
         }
 
 
@@ -125,7 +187,7 @@ public class FocusModeActivity extends AppCompatActivity {
         // --- END FIX ---
 
         mPausePlayButton.setOnClickListener(v -> {
-            if (mTimerRunning) {
+            if (mSession != null && mSession.isRunning()) {
                 pauseTimer();
             } else {
                 startTimer();
@@ -146,7 +208,7 @@ public class FocusModeActivity extends AppCompatActivity {
                     showEmergencyExitDialog();
                 } else {
                     setEnabled(false);
-                    finish();
+                    finishSession();
                 }
             }
         };
@@ -154,14 +216,42 @@ public class FocusModeActivity extends AppCompatActivity {
 
         if (isRelaunch) {
             Toast.makeText(this, "Focus session re-locked.", Toast.LENGTH_SHORT).show();
-            startTimer();
+            mStartWhenBound = true;
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, FocusSessionService.class), mSessionConnection, BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // The session keeps running in the service; stop rendering it
+        mTickHandler.removeCallbacks(mTick);
+        if (mSessionService != null) {
+            mSessionService.setListener(null);
+            mSessionService = null;
+            mSession = null;
+        }
+        unbindService(mSessionConnection);
+        NotificationOutbox.get().flush(); // don't leave events in memory while in the background
+    }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        // AppLockService brings this screen back with REORDER_TO_FRONT
+        setIntent(intent);
+    }
+
     // --- THIS IS THE FIX ---
     @Override
     protected void onResume() {
         super.onResume();
+        LockLatencyMetrics.onOverlayResumed(getIntent());
         // Fetch the parent ID every time the activity is shown
         // This ensures mParentId is never stale
         fetchStudentData();
@@ -173,6 +263,8 @@ public class FocusModeActivity extends AppCompatActivity {
             if (doc.exists()) {
                 mUserFirstName = doc.getString("firstName");
                 mParentId = doc.getString("linkedParentId");
+                mStudentDataLoaded = true;
+                updateSessionOwner();
 
                 // Now that we have mParentId, enable the buttons
                 enableButtons();
@@ -183,6 +275,13 @@ public class FocusModeActivity extends AppCompatActivity {
         });
     }
 
+    // A finished pomodoro is logged by the service, which needs to know whose it is
+    private void updateSessionOwner() {
+        if (mSessionService == null) return; // done on connect instead
+        String parentId = mParentId != null && !mParentId.isEmpty() ? mParentId : null;
+        mSessionService.setOwner(mUserId, parentId, mUserFirstName);
+    }
+
     private void enableButtons() {
         mPausePlayButton.setEnabled(true);
         mPausePlayButton.setAlpha(1.0f);
@@ -203,7 +302,9 @@ public class FocusModeActivity extends AppCompatActivity {
     }
 
     private void startTimer() {
-        if (!mKioskModeActive && !mIsInBreak && mParentId != null && !mParentId.isEmpty()) {
+        if (mSessionService == null || mSession == null) return;
+
+        if (!mKioskModeActive && !mSession.isInBreak() && mParentId != null && !mParentId.isEmpty()) {
             try {
                 startLockTask();
 
@@ -220,134 +321,80 @@ public class FocusModeActivity extends AppCompatActivity {
             }
         }
 
-        mCountDownTimer = new CountDownTimer(mTimeLeftInMillis, 1000) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                mTimeLeftInMillis = millisUntilFinished;
-                updateTimerText();
-
-                if (!mIsInBreak && mKioskModeActive) {
-                    getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE).edit()
-                            .putLong(StudentDashboardActivity.PREF_REMAINING_FOCUS_TIME, mTimeLeftInMillis)
-                            .apply();
-                }
-            }
-
-            @Override
-            public void onFinish() {
-                mTimerRunning = false;
-                mIsPaused = false;
-                mPausePlayButton.setImageResource(R.drawable.ic_play);
-
-                if (mIsInBreak) {
-                    mIsInBreak = false;
-                    mToolbarTitle.setText("Focus Mode");
-
-                    SharedPreferences prefs = getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE);
-                    mTimeLeftInMillis = prefs.getLong(StudentDashboardActivity.PREF_REMAINING_FOCUS_TIME, mFocusDurationMillis);
-
-                    Toast.makeText(FocusModeActivity.this, "Break is over! Resuming focus.", Toast.LENGTH_LONG).show();
-                    updateTimerText();
-                    startTimer();
-                } else {
-                    mKioskModeActive = false;
-                    logPomodoro();
-                    showFinishedDialog();
-                }
-            }
-        }.start();
+        if (!mSessionService.isInForeground()) {
+            FocusSessionService.start(this);
+        }
+        mSessionService.startTimer();
 
-        mTimerRunning = true;
-        mIsPaused = false;
-        mPausePlayButton.setImageResource(R.drawable.ic_pause);
         mButtonStartBreak.setVisibility(View.GONE);
         mResetButton.setVisibility(View.VISIBLE);
     }
 
     private void pauseTimer() {
-        if (mCountDownTimer != null) {
-            mCountDownTimer.cancel();
-        }
-        mTimerRunning = false;
-        mIsPaused = true;
-        mPausePlayButton.setImageResource(R.drawable.ic_play);
+        if (mSessionService == null) return;
+        mSessionService.pauseTimer();
 
-        if (!mIsInBreak && mParentId != null && !mParentId.isEmpty()) {
+        if (!mSession.isInBreak() && mParentId != null && !mParentId.isEmpty()) {
             mButtonStartBreak.setVisibility(View.VISIBLE);
         }
     }
 
     private void resetTimer() {
-        if (mCountDownTimer != null) {
-            mCountDownTimer.cancel();
-        }
-        mTimerRunning = false;
-        mIsPaused = false;
-
-        if (mIsInBreak) {
-            mIsInBreak = false;
-            mTimeLeftInMillis = getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE)
-                    .getLong(StudentDashboardActivity.PREF_REMAINING_FOCUS_TIME, mFocusDurationMillis);
-        } else {
-            mTimeLeftInMillis = mFocusDurationMillis;
-        }
-
-        mToolbarTitle.setText("Focus Mode");
-        updateTimerText();
-        mPausePlayButton.setImageResource(R.drawable.ic_play);
+        if (mSessionService == null) return;
+        mSessionService.resetTimer();
         mButtonStartBreak.setVisibility(View.GONE);
-
-        if (mKioskModeActive) {
-            getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE).edit()
-                    .putLong(StudentDashboardActivity.PREF_REMAINING_FOCUS_TIME, mTimeLeftInMillis)
-                    .apply();
-        }
     }
 
     private void startBreak() {
-        if (mCountDownTimer != null) {
-            mCountDownTimer.cancel();
-        }
-
-        SharedPreferences prefs = getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE);
-        prefs.edit().putLong(StudentDashboardActivity.PREF_REMAINING_FOCUS_TIME, mTimeLeftInMillis).apply();
+        if (mSessionService == null) return;
 
-        mIsInBreak = true;
-        mTimerRunning = false;
-        mIsPaused = true;
-        mTimeLeftInMillis = 5 * 60 * 1000; // 5 minutes
-
-        mToolbarTitle.setText("Break Time");
-        mPausePlayButton.setImageResource(R.drawable.ic_play);
+        // The service remembers the interrupted focus time and restores it after the break
+        mSessionService.startBreak(BREAK_DURATION_MILLIS, false);
         mButtonStartBreak.setVisibility(View.GONE);
         mResetButton.setVisibility(View.GONE);
 
-        updateTimerText();
-
         try {
             stopLockTask();
-            prefs.edit().putBoolean(StudentDashboardActivity.PREF_FOCUS_MODE_ACTIVE, false).apply();
+            getSharedPreferences(StudentDashboardActivity.PREFS_NAME, MODE_PRIVATE).edit()
+                    .putBoolean(StudentDashboardActivity.PREF_FOCUS_MODE_ACTIVE, false).apply();
             Toast.makeText(this, "Starting 5-min break. You can leave the app.", Toast.LENGTH_LONG).show();
             mKioskModeActive = false; // Allow user to exit
         } catch (Exception e) {
             Log.e(TAG, "Failed to stop lock task for break", e);
         }
 
-        createNotification(mUserFirstName + " has started a 5-minute break.");
+        notifyParent(NotificationOutbox.TYPE_BREAK, "has started a 5-minute break.");
+    }
+
+    // Draws the current session state and schedules the next redraw for when the
+    // displayed second changes. Nothing is counted here; the time is always derived.
+    private void render() {
+        mTickHandler.removeCallbacks(mTick);
+        if (mSession == null) return;
+
+        mToolbarTitle.setText(mSession.isInBreak() ? "Break Time" : "Focus Mode");
+        mPausePlayButton.setImageResource(mSession.isRunning() ? R.drawable.ic_pause : R.drawable.ic_play);
+        onTick();
+    }
+
+    // Only redraws. The session is checkpointed by the service on state changes, not per tick.
+    private void onTick() {
+        updateTimerText();
+        if (mSession == null || !mSession.isRunning()) return;
+
+        long remaining = mSession.getRemainingMillis(SystemClock.elapsedRealtime());
+        mTickHandler.postDelayed(mTick, remaining % 1000 + 1);
     }
 
     private void updateTimerText() {
-        long minutes = TimeUnit.MILLISECONDS.toMinutes(mTimeLeftInMillis);
-        long seconds = TimeUnit.MILLISECONDS.toSeconds(mTimeLeftInMillis) - TimeUnit.MINUTES.toSeconds(minutes);
+        FocusSession session = mSession != null ? mSession : mInitialSession;
+        long timeLeft = session.getRemainingMillis(SystemClock.elapsedRealtime());
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(timeLeft);
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(timeLeft) - TimeUnit.MINUTES.toSeconds(minutes);
         mTimerText.setText(String.format(Locale.US, "%02d:%02d", minutes, seconds));
     }
 
     private void clearFocusFlagsAndStopLock() {
-        if (mCountDownTimer != null) {
-            mCountDownTimer.cancel();
-        }
-        mTimerRunning = false;
-        mIsPaused = false;
         mKioskModeActive = false;
 
         try {
@@ -388,9 +435,9 @@ public class FocusModeActivity extends AppCompatActivity {
                 // PIN is correct!
                 Toast.makeText(this, "PIN Correct. Exiting focus mode.", Toast.LENGTH_SHORT).show();
                 clearFocusFlagsAndStopLock();
-                createNotification(mUserFirstName + " cancelled a focus session with a PIN.");
+                notifyParent(NotificationOutbox.TYPE_CANCELLED, "cancelled a focus session with a PIN.");
                 dialog.dismiss();
-                finish();
+                finishSession();
             } else {
                 input.setError("Incorrect PIN");
             }
@@ -402,12 +449,13 @@ public class FocusModeActivity extends AppCompatActivity {
     }
 
     private void showFinishedDialog() {
-        if (!mIsInBreak) {
+        boolean inBreak = mSession != null && mSession.isInBreak();
+        if (!inBreak) {
             clearFocusFlagsAndStopLock();
         }
 
         String title, message, positiveButton;
-        if (mIsInBreak) {
+        if (inBreak) {
             title = "Break Over!";
             message = "Time to get back to focus.";
             positiveButton = "OK";
@@ -421,18 +469,17 @@ public class FocusModeActivity extends AppCompatActivity {
         builder.setTitle(title)
                 .setMessage(message)
                 .setPositiveButton(positiveButton, (dialog, which) -> {
-                    if (mIsInBreak) {
-                        // Break is over, do nothing, the onFinish() will handle re-locking
+                    if (inBreak) {
+                        // Break is over, do nothing, onPhaseFinished() will handle re-locking
                     } else {
                         startBreakTimer(); // Session is over, start a break
                     }
                 });
 
-        if (!mIsInBreak) {
+        if (!inBreak) {
             builder.setNegativeButton("Done", (dialog, which) -> {
-                finish(); // Go back to dashboard
+                finishSession(); // Go back to dashboard
             });
-            createNotification(mUserFirstName + " finished a focus session!");
         }
 
         builder.setCancelable(false)
@@ -440,71 +487,25 @@ public class FocusModeActivity extends AppCompatActivity {
     }
 
     private void startBreakTimer() {
-        mIsInBreak = true;
-        mTimeLeftInMillis = 5 * 60 * 1000; // 5 minutes
-        mToolbarTitle.setText("Break Time");
-        updateTimerText();
-        startTimer();
-
-        createNotification(mUserFirstName + " has started a 5-minute break.");
-    }
+        if (mSessionService == null) return;
+        mSessionService.startBreak(BREAK_DURATION_MILLIS, true);
+        mButtonStartBreak.setVisibility(View.GONE);
+        mResetButton.setVisibility(View.VISIBLE);
 
-    private void logPomodoro() {
-        Map<String, Object> session = new HashMap<>();
-        session.put("timestamp", System.currentTimeMillis());
-        long durationMinutes = TimeUnit.MILLISECONDS.toMinutes(mFocusDurationMillis);
-        session.put("durationMinutes", durationMinutes);
-        session.put("taskName", "Focus Session");
-
-        mStore.collection("users").document(mUserId).collection("sessions")
-                .add(session)
-                .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "Session logged successfully");
-                    updateUserAggregates(durationMinutes);
-                })
-                .addOnFailureListener(e -> Log.w(TAG, "Error logging session", e));
+        notifyParent(NotificationOutbox.TYPE_BREAK, "has started a 5-minute break.");
     }
 
-    private void updateUserAggregates(long durationMinutes) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("totalPomodoros", FieldValue.increment(1));
-        updates.put("totalHours", FieldValue.increment(durationMinutes / 60.0));
-
-        mStore.collection("users").document(mUserId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "User aggregates updated successfully");
-                    Toast.makeText(this, "Session saved!", Toast.LENGTH_SHORT).show();
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Error updating user aggregates", e);
-                });
+    private void notifyParent(String type, String message) {
+        NotificationOutbox.get().post(mParentId, mUserId, mUserFirstName, type, message);
     }
 
-    // --- THIS IS THE FIX ---
-    private void createNotification(String message) {
-        if (mParentId == null || mParentId.isEmpty()) {
-            Log.d(TAG, "No parent ID found, cannot send notification.");
-            return;
+    // Leaving the screen on purpose ends the session; being torn down by the system does not
+    private void finishSession() {
+        if (mSessionService != null) {
+            mSessionService.endSession();
         }
-
-        Map<String, Object> notificationData = new HashMap<>();
-        notificationData.put("parentId", mParentId);
-        notificationData.put("studentId", mUserId);
-        notificationData.put("studentName", mUserFirstName);
-        notificationData.put("message", message);
-        notificationData.put("timestamp", FieldValue.serverTimestamp());
-
-        // --- ADDED: This field is required by the parent's query ---
-        notificationData.put("read", false);
-        // --- END OF FIX ---
-
-        mStore.collection("notifications")
-                .add(notificationData)
-                .addOnSuccessListener(documentReference -> Log.d(TAG, "Notification request created successfully."))
-                .addOnFailureListener(e -> Log.w(TAG, "Error creating notification request", e));
+        finish();
     }
-    // --- END OF FIX ---
 
     private void goToLogin() {
         Intent intent = new Intent(FocusModeActivity.this, LoginActivity.class);
@@ -0,0 +1,181 @@
+package com.example.focus;
+
+// State of one focus session (a focus phase, optionally interrupted by a break).
+// Nothing here counts down: a run records the SystemClock.elapsedRealtime() it started
+// at, and the remaining time is always derived from that, so it keeps counting while
+// the screen is off and does not drift when the UI is torn down and rebuilt.
+// Owned by FocusSessionService; all times passed in are elapsedRealtime() values.
+public final class FocusSession {
+
+    public static final int PHASE_FOCUS = 0;
+    public static final int PHASE_BREAK = 1;
+
+    // getRunStartedAt() while the clock is stopped. elapsedRealtime() values translated
+    // from before a reboot can be negative, so -1 is not safe as a marker.
+    public static final long NOT_RUNNING = Long.MIN_VALUE;
+
+    private final long mFocusDurationMillis;
+
+    private int mPhase = PHASE_FOCUS;
+    private long mPhaseDurationMillis;
+    private long mElapsedBeforeRunMillis;   // time already spent in earlier runs of this phase
+    private long mRunStartedAt = NOT_RUNNING; // elapsedRealtime of the current run
+    private long mFocusLeftAtBreakMillis;   // focus time to resume with once the break ends
+
+    // Whose session this is, so the service can log a finished pomodoro with no screen bound
+    private String mUserId;
+    private String mParentId;    // null without a linked parent
+    private String mStudentName;
+
+    public FocusSession(long focusDurationMillis, long focusRemainingMillis) {
+        mFocusDurationMillis = focusDurationMillis;
+        mPhaseDurationMillis = focusDurationMillis;
+        mElapsedBeforeRunMillis = clamp(focusDurationMillis - focusRemainingMillis, focusDurationMillis);
+    }
+
+    // Rebuilds a session from a FocusSessionCheckpoint. runStartedAt must already be
+    // translated to the current boot's elapsedRealtime(), or NOT_RUNNING.
+    public static FocusSession restore(long focusDurationMillis, int phase, long phaseDurationMillis,
+                                       long elapsedBeforeRunMillis, long runStartedAt, long focusLeftAtBreakMillis) {
+        FocusSession session = new FocusSession(focusDurationMillis, focusDurationMillis);
+        session.mPhase = phase == PHASE_BREAK ? PHASE_BREAK : PHASE_FOCUS;
+        session.mPhaseDurationMillis = phaseDurationMillis;
+        session.mElapsedBeforeRunMillis = clamp(elapsedBeforeRunMillis, phaseDurationMillis);
+        session.mRunStartedAt = runStartedAt;
+        session.mFocusLeftAtBreakMillis = focusLeftAtBreakMillis;
+        return session;
+    }
+
+    public long getFocusDurationMillis() {
+        return mFocusDurationMillis;
+    }
+
+    public int getPhase() {
+        return mPhase;
+    }
+
+    public boolean isInBreak() {
+        return mPhase == PHASE_BREAK;
+    }
+
+    public boolean isRunning() {
+        return mRunStartedAt != NOT_RUNNING;
+    }
+
+    public void setOwner(String userId, String parentId, String studentName) {
+        mUserId = userId;
+        mParentId = parentId;
+        mStudentName = studentName;
+    }
+
+    public String getUserId() {
+        return mUserId;
+    }
+
+    public String getParentId() {
+        return mParentId;
+    }
+
+    public String getStudentName() {
+        return mStudentName;
+    }
+
+    // --- Raw state, for FocusSessionCheckpoint ---
+
+    public long getPhaseDurationMillis() {
+        return mPhaseDurationMillis;
+    }
+
+    public long getElapsedBeforeRunMillis() {
+        return mElapsedBeforeRunMillis;
+    }
+
+    public long getRunStartedAt() {
+        return mRunStartedAt;
+    }
+
+    public long getFocusLeftAtBreakMillis() {
+        return mFocusLeftAtBreakMillis;
+    }
+
+    public long getRemainingMillis(long now) {
+        long elapsed = mElapsedBeforeRunMillis;
+        if (mRunStartedAt != NOT_RUNNING) {
+            elapsed += now - mRunStartedAt;
+        }
+        return Math.max(0, mPhaseDurationMillis - elapsed);
+    }
+
+    // When the running phase reaches (or reached) zero; only meaningful while running
+    public long getPhaseEndAt() {
+        return mRunStartedAt + mPhaseDurationMillis - mElapsedBeforeRunMillis;
+    }
+
+    public boolean isPhaseOver(long now) {
+        return isRunning() && getRemainingMillis(now) == 0;
+    }
+
+    public void start(long now) {
+        if (mRunStartedAt == NOT_RUNNING) {
+            mRunStartedAt = now;
+        }
+    }
+
+    public void pause(long now) {
+        if (mRunStartedAt != NOT_RUNNING) {
+            mElapsedBeforeRunMillis = clamp(mElapsedBeforeRunMillis + now - mRunStartedAt, mPhaseDurationMillis);
+            mRunStartedAt = NOT_RUNNING;
+        }
+    }
+
+    // Stops the clock. A break is abandoned and the interrupted focus time restored;
+    // a focus phase goes back to its full duration.
+    public void reset() {
+        if (mPhase == PHASE_BREAK) {
+            resumeFocusAfterBreak();
+        } else {
+            mElapsedBeforeRunMillis = 0;
+            mRunStartedAt = NOT_RUNNING;
+        }
+    }
+
+    // Switches to a break, remembering how much focus time is left (the full duration
+    // if the focus phase has just been completed)
+    public void startBreak(long now, long breakMillis, boolean running) {
+        if (mPhase == PHASE_FOCUS) {
+            mFocusLeftAtBreakMillis = getRemainingMillis(now);
+            if (mFocusLeftAtBreakMillis == 0) {
+                mFocusLeftAtBreakMillis = mFocusDurationMillis;
+            }
+        }
+        mPhase = PHASE_BREAK;
+        mPhaseDurationMillis = breakMillis;
+        mElapsedBeforeRunMillis = 0;
+        mRunStartedAt = running ? now : NOT_RUNNING;
+    }
+
+    // Called once the running phase has reached zero. Returns the phase that ended.
+    // A finished focus phase is rearmed for a new pomodoro; a finished break hands back
+    // the focus time it interrupted. Either way the clock is stopped.
+    public int completePhase() {
+        int finished = mPhase;
+        if (finished == PHASE_BREAK) {
+            resumeFocusAfterBreak();
+        } else {
+            mElapsedBeforeRunMillis = 0;
+            mRunStartedAt = NOT_RUNNING;
+        }
+        return finished;
+    }
+
+    private void resumeFocusAfterBreak() {
+        mPhase = PHASE_FOCUS;
+        mPhaseDurationMillis = mFocusDurationMillis;
+        mElapsedBeforeRunMillis = clamp(mFocusDurationMillis - mFocusLeftAtBreakMillis, mFocusDurationMillis);
+        mRunStartedAt = NOT_RUNNING;
+    }
+
+    private static long clamp(long elapsed, long duration) {
+        return Math.max(0, Math.min(elapsed, duration));
+    }
+}
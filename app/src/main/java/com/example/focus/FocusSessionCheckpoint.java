@@ -0,0 +1,107 @@
+package com.example.focus;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+// Persists the FocusSession once per state transition (start, pause, reset, break,
+// phase end) so a locked session survives the process being killed. Only the
+// transition points are stored; the remaining time is derived again on restore,
+// so nothing has to be written while the clock is simply running. A phase that ended
+// while no screen was bound is kept too, so its dialog still shows after a relaunch.
+// Kept in its own small prefs file so AppLockService's listener on the main prefs
+// is not woken by timer state.
+public final class FocusSessionCheckpoint {
+
+    private static final String PREFS_NAME = "FocusSessionCheckpoint";
+
+    private static final String KEY_FOCUS_DURATION = "focusDuration";
+    private static final String KEY_PHASE = "phase";
+    private static final String KEY_PHASE_DURATION = "phaseDuration";
+    private static final String KEY_ELAPSED_BEFORE_RUN = "elapsedBeforeRun";
+    private static final String KEY_FOCUS_LEFT_AT_BREAK = "focusLeftAtBreak";
+    private static final String KEY_RUN_STARTED_ELAPSED = "runStartedElapsed";
+    private static final String KEY_RUN_STARTED_WALL = "runStartedWall";
+    private static final String KEY_USER_ID = "userId";
+    private static final String KEY_PARENT_ID = "parentId";
+    private static final String KEY_STUDENT_NAME = "studentName";
+    private static final String KEY_UNDELIVERED_PHASE = "undeliveredPhase";
+
+    // Boot time derived from two clocks drifts a little; a larger jump means a reboot
+    private static final long SAME_BOOT_TOLERANCE_MILLIS = 60 * 1000;
+
+    private FocusSessionCheckpoint() {}
+
+    // 'undeliveredPhase' is -1 when every finished phase has been shown
+    public static void save(Context context, FocusSession session, int undeliveredPhase) {
+        long runStartedAt = session.getRunStartedAt();
+        long runStartedWall = 0;
+        if (runStartedAt != FocusSession.NOT_RUNNING) {
+            runStartedWall = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - runStartedAt);
+        }
+
+        prefs(context).edit()
+                .putLong(KEY_FOCUS_DURATION, session.getFocusDurationMillis())
+                .putInt(KEY_PHASE, session.getPhase())
+                .putLong(KEY_PHASE_DURATION, session.getPhaseDurationMillis())
+                .putLong(KEY_ELAPSED_BEFORE_RUN, session.getElapsedBeforeRunMillis())
+                .putLong(KEY_FOCUS_LEFT_AT_BREAK, session.getFocusLeftAtBreakMillis())
+                .putLong(KEY_RUN_STARTED_ELAPSED, runStartedAt)
+                .putLong(KEY_RUN_STARTED_WALL, runStartedWall)
+                .putString(KEY_USER_ID, session.getUserId())
+                .putString(KEY_PARENT_ID, session.getParentId())
+                .putString(KEY_STUDENT_NAME, session.getStudentName())
+                .putInt(KEY_UNDELIVERED_PHASE, undeliveredPhase)
+                .apply();
+    }
+
+    // Returns null if no session was checkpointed
+    public static FocusSession load(Context context) {
+        SharedPreferences prefs = prefs(context);
+        if (!prefs.contains(KEY_FOCUS_DURATION)) return null;
+
+        long runStartedAt = prefs.getLong(KEY_RUN_STARTED_ELAPSED, FocusSession.NOT_RUNNING);
+        if (runStartedAt != FocusSession.NOT_RUNNING) {
+            runStartedAt = toCurrentBoot(runStartedAt, prefs.getLong(KEY_RUN_STARTED_WALL, 0));
+        }
+
+        FocusSession session = FocusSession.restore(
+                prefs.getLong(KEY_FOCUS_DURATION, 0),
+                prefs.getInt(KEY_PHASE, FocusSession.PHASE_FOCUS),
+                prefs.getLong(KEY_PHASE_DURATION, 0),
+                prefs.getLong(KEY_ELAPSED_BEFORE_RUN, 0),
+                runStartedAt,
+                prefs.getLong(KEY_FOCUS_LEFT_AT_BREAK, 0));
+        session.setOwner(prefs.getString(KEY_USER_ID, null), prefs.getString(KEY_PARENT_ID, null),
+                prefs.getString(KEY_STUDENT_NAME, null));
+        return session;
+    }
+
+    // The phase that finished while no screen was bound, or -1
+    public static int loadUndeliveredPhase(Context context) {
+        return prefs(context).getInt(KEY_UNDELIVERED_PHASE, -1);
+    }
+
+    public static void clear(Context context) {
+        prefs(context).edit().clear().apply();
+    }
+
+    // elapsedRealtime() restarts at zero on reboot. If the device rebooted since the
+    // checkpoint, fall back to the wall clock to work out how long the run has lasted.
+    private static long toCurrentBoot(long runStartedElapsed, long runStartedWall) {
+        long nowElapsed = SystemClock.elapsedRealtime();
+        long nowWall = System.currentTimeMillis();
+        long bootWallNow = nowWall - nowElapsed;
+        long bootWallThen = runStartedWall - runStartedElapsed;
+
+        if (runStartedElapsed <= nowElapsed && Math.abs(bootWallNow - bootWallThen) <= SAME_BOOT_TOLERANCE_MILLIS) {
+            return runStartedElapsed;
+        }
+        long runSoFar = Math.max(0, nowWall - runStartedWall);
+        return nowElapsed - runSoFar;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
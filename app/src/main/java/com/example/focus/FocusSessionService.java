@@ -0,0 +1,278 @@
+package com.example.focus;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Foreground service that owns the running FocusSession, so the timer survives
+// FocusModeActivity being destroyed. FocusModeActivity binds to it to render the
+// remaining time and to forward the user's start/pause/reset/break actions.
+// Everything runs on the main thread.
+public class FocusSessionService extends Service {
+
+    private static final String TAG = "FocusSessionService";
+
+    private static final String CHANNEL_ID = "FocusSessionChannel";
+    private static final int NOTIFICATION_ID = 1001;
+
+    // Notified on the main thread
+    public interface Listener {
+        void onSessionChanged(FocusSession session);
+
+        // 'phase' has reached zero; the session has already moved on (see FocusSession.completePhase)
+        void onPhaseFinished(int phase);
+    }
+
+    public class LocalBinder extends Binder {
+        public FocusSessionService getService() {
+            return FocusSessionService.this;
+        }
+    }
+
+    private final IBinder mBinder = new LocalBinder();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mPhaseEndCheck = this::checkPhaseEnd;
+
+    private FocusSession mSession;
+    private Listener mListener;
+    private int mUndeliveredPhase = -1; // a phase that finished while no screen was bound
+    private boolean mInForeground;
+
+    public static void start(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, FocusSessionService.class));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Must go foreground right away when started with startForegroundService()
+        startInForeground();
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return mBinder;
+    }
+
+    @Override
+    public void onDestroy() {
+        mHandler.removeCallbacks(mPhaseEndCheck);
+        super.onDestroy();
+    }
+
+    // --- Session API (main thread) ---
+
+    public FocusSession getSession() {
+        return mSession;
+    }
+
+    // startForegroundService() is not allowed from the background, so callers only
+    // start the service when it is not already in the foreground
+    public boolean isInForeground() {
+        return mInForeground;
+    }
+
+    // Adopts the given session unless one is already running in this service. A session
+    // restored from a checkpoint brings the phase that was never shown along.
+    public FocusSession beginIfIdle(FocusSession session, int undeliveredPhase) {
+        if (mSession == null) {
+            mSession = session;
+            mUndeliveredPhase = undeliveredPhase;
+        }
+        return mSession;
+    }
+
+    // Who a finished pomodoro is logged for; the screen sets it once the user doc has loaded
+    public void setOwner(String userId, String parentId, String studentName) {
+        if (mSession == null) return;
+        mSession.setOwner(userId, parentId, studentName);
+        FocusSessionCheckpoint.save(this, mSession, mUndeliveredPhase);
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+        if (listener != null && mUndeliveredPhase >= 0) {
+            int phase = mUndeliveredPhase;
+            mUndeliveredPhase = -1;
+            if (mSession != null) FocusSessionCheckpoint.save(this, mSession, -1);
+            listener.onPhaseFinished(phase);
+        }
+        // A phase may also have run out while nothing was scheduled (deep sleep)
+        checkPhaseEnd();
+    }
+
+    public void startTimer() {
+        if (mSession == null) return;
+        mSession.start(SystemClock.elapsedRealtime());
+        onStateChanged();
+    }
+
+    public void pauseTimer() {
+        if (mSession == null) return;
+        mSession.pause(SystemClock.elapsedRealtime());
+        onStateChanged();
+    }
+
+    public void resetTimer() {
+        if (mSession == null) return;
+        mSession.reset();
+        onStateChanged();
+    }
+
+    public void startBreak(long breakMillis, boolean running) {
+        if (mSession == null) return;
+        mSession.startBreak(SystemClock.elapsedRealtime(), breakMillis, running);
+        onStateChanged();
+    }
+
+    // Ends the session and takes the service out of the foreground
+    public void endSession() {
+        mSession = null;
+        mUndeliveredPhase = -1;
+        mHandler.removeCallbacks(mPhaseEndCheck);
+        FocusSessionCheckpoint.clear(this);
+        mInForeground = false;
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        stopSelf();
+    }
+
+    // --- Internals ---
+
+    // Every transition goes through here, so this is also the only place the session is persisted
+    private void onStateChanged() {
+        if (mSession != null) {
+            FocusSessionCheckpoint.save(this, mSession, mUndeliveredPhase);
+        }
+        scheduleNextCheck();
+        updateNotification();
+        if (mListener != null) {
+            mListener.onSessionChanged(mSession);
+        }
+    }
+
+    private void scheduleNextCheck() {
+        mHandler.removeCallbacks(mPhaseEndCheck);
+        if (mSession != null && mSession.isRunning()) {
+            // Handler time stops in deep sleep; checkPhaseEnd() re-derives from elapsedRealtime
+            mHandler.postDelayed(mPhaseEndCheck, mSession.getRemainingMillis(SystemClock.elapsedRealtime()));
+        }
+    }
+
+    private void checkPhaseEnd() {
+        if (mSession == null) return;
+        long now = SystemClock.elapsedRealtime();
+        if (!mSession.isPhaseOver(now)) {
+            scheduleNextCheck();
+            return;
+        }
+
+        // The phase may have run out a while ago (deep sleep, or a restored checkpoint)
+        long endedAt = System.currentTimeMillis() - (now - mSession.getPhaseEndAt());
+        int finished = mSession.completePhase();
+        Log.d(TAG, "Phase finished: " + finished);
+        if (finished == FocusSession.PHASE_FOCUS) {
+            logPomodoro(endedAt);
+        }
+        if (mListener == null) {
+            mUndeliveredPhase = finished; // before onStateChanged(), so the checkpoint keeps it
+        }
+        onStateChanged();
+        if (mListener != null) {
+            mListener.onPhaseFinished(finished);
+        }
+    }
+
+    // Logged here rather than by the screen, so a pomodoro that ends with no screen bound is
+    // not lost. Journaled on disk first; SessionJournalFlusher writes the session, the user
+    // totals and the parent's "finished" notification together, retrying until it gets through.
+    private void logPomodoro(long endedAt) {
+        String userId = mSession.getUserId();
+        if (userId == null) {
+            Log.w(TAG, "Finished pomodoro has no owner, not logged.");
+            return;
+        }
+        long durationMinutes = TimeUnit.MILLISECONDS.toMinutes(mSession.getFocusDurationMillis());
+        SessionJournalFlusher.get(this).log(userId, endedAt, durationMinutes,
+                mSession.getParentId(), mSession.getStudentName());
+    }
+
+    private void startInForeground() {
+        int type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE
+                ? ServiceInfo.FOREGROUND_SERVICE_TYPE_SPECIAL_USE : 0;
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(), type);
+        mInForeground = true;
+    }
+
+    private void updateNotification() {
+        if (mSession == null) return;
+        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        manager.notify(NOTIFICATION_ID, buildNotification());
+    }
+
+    // A running phase uses a count-down chronometer, so the notification is only
+    // rebuilt on state changes, never once per second
+    private Notification buildNotification() {
+        createChannel();
+
+        Intent intent = new Intent(this, FocusModeActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_focus_guard_logo)
+                .setContentIntent(pendingIntent)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setSilent(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW);
+
+        if (mSession == null) {
+            return builder.setContentTitle("Focus Mode").build();
+        }
+
+        long remaining = mSession.getRemainingMillis(SystemClock.elapsedRealtime());
+        builder.setContentTitle(mSession.isInBreak() ? "Break Time" : "Focus Mode");
+        if (mSession.isRunning() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            builder.setWhen(System.currentTimeMillis() + remaining)
+                    .setShowWhen(true)
+                    .setUsesChronometer(true)
+                    .setChronometerCountDown(true);
+        } else {
+            long minutes = TimeUnit.MILLISECONDS.toMinutes(remaining);
+            long seconds = TimeUnit.MILLISECONDS.toSeconds(remaining) - TimeUnit.MINUTES.toSeconds(minutes);
+            String state = mSession.isRunning() ? "left" : "left (paused)";
+            builder.setContentText(String.format(Locale.US, "%02d:%02d %s", minutes, seconds, state))
+                    .setShowWhen(false);
+        }
+        return builder.build();
+    }
+
+    private void createChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    "Focus Session",
+                    NotificationManager.IMPORTANCE_LOW);
+            NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+            manager.createNotificationChannel(channel);
+        }
+    }
+}
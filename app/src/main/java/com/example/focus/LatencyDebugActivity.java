@@ -0,0 +1,70 @@
+package com.example.focus;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+
+import java.io.File;
+import java.io.IOException;
+
+// Debug-only screen that shows the LockLatencyMetrics histograms and exports them to CSV,
+// plus the live Firestore listener counters
+public class LatencyDebugActivity extends AppCompatActivity {
+
+    private static final String TAG = "LatencyDebugActivity";
+
+    private TextView mTextSummary;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_latency_debug);
+
+        // --- Toolbar Setup ---
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setDisplayShowTitleEnabled(false);
+        }
+        toolbar.setNavigationOnClickListener(v -> getOnBackPressedDispatcher().onBackPressed());
+
+        mTextSummary = findViewById(R.id.textLatencySummary);
+        Button buttonRefresh = findViewById(R.id.buttonLatencyRefresh);
+        Button buttonExport = findViewById(R.id.buttonLatencyExport);
+        Button buttonReset = findViewById(R.id.buttonLatencyReset);
+
+        buttonRefresh.setOnClickListener(v -> showSummary());
+        buttonExport.setOnClickListener(v -> exportCsv());
+        buttonReset.setOnClickListener(v -> {
+            LockLatencyMetrics.reset();
+            showSummary();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showSummary();
+    }
+
+    private void showSummary() {
+        mTextSummary.setText(LockLatencyMetrics.summary() + "\n\n" + ListenerRegistry.get().summary());
+    }
+
+    private void exportCsv() {
+        try {
+            File file = LockLatencyMetrics.exportCsv(this);
+            Log.d(TAG, "Latency histograms exported to " + file.getAbsolutePath());
+            Toast.makeText(this, "Exported to " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to export latency histograms", e);
+            Toast.makeText(this, "Export failed.", Toast.LENGTH_SHORT).show();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.focus;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Fixed-size, HDR-style latency histogram recording values in microseconds.
+// Values below 64us get one bucket each; above that every power of two is split
+// into 32 linear sub-buckets, so any recorded value is reported within ~3% of the
+// real one. Recording is a couple of bit operations and an array increment.
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;                       // 32 sub-buckets per octave
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;      // 0..63 recorded exactly
+    private static final long MAX_TRACKABLE_MICROS = (1L << 36) - 1;    // ~19 hours, anything above is clamped
+
+    private final long[] mCounts = new long[indexFor(MAX_TRACKABLE_MICROS) + 1];
+    private long mTotalCount;
+    private long mMinMicros = Long.MAX_VALUE;
+    private long mMaxMicros;
+    private long mSumMicros;
+
+    public synchronized void record(long micros) {
+        if (micros < 0) micros = 0;
+        if (micros > MAX_TRACKABLE_MICROS) micros = MAX_TRACKABLE_MICROS;
+
+        mCounts[indexFor(micros)]++;
+        mTotalCount++;
+        mSumMicros += micros;
+        if (micros < mMinMicros) mMinMicros = micros;
+        if (micros > mMaxMicros) mMaxMicros = micros;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(mCounts, 0);
+        mTotalCount = 0;
+        mMinMicros = Long.MAX_VALUE;
+        mMaxMicros = 0;
+        mSumMicros = 0;
+    }
+
+    public synchronized long getTotalCount() {
+        return mTotalCount;
+    }
+
+    public synchronized long getMinMicros() {
+        return mTotalCount == 0 ? 0 : mMinMicros;
+    }
+
+    public synchronized long getMaxMicros() {
+        return mMaxMicros;
+    }
+
+    public synchronized double getMeanMicros() {
+        return mTotalCount == 0 ? 0 : (double) mSumMicros / mTotalCount;
+    }
+
+    // Returns the highest value equivalent to the bucket holding the given percentile (0-100)
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (mTotalCount == 0) return 0;
+
+        long target = (long) Math.ceil((percentile / 100.0) * mTotalCount);
+        if (target < 1) target = 1;
+
+        long seen = 0;
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), mMaxMicros);
+            }
+        }
+        return mMaxMicros;
+    }
+
+    public synchronized String summary() {
+        return String.format(Locale.US,
+                "n=%d  min=%.1f  p50=%.1f  p90=%.1f  p99=%.1f  max=%.1f  mean=%.1f (ms)",
+                mTotalCount,
+                getMinMicros() / 1000.0,
+                getValueAtPercentile(50) / 1000.0,
+                getValueAtPercentile(90) / 1000.0,
+                getValueAtPercentile(99) / 1000.0,
+                mMaxMicros / 1000.0,
+                getMeanMicros() / 1000.0);
+    }
+
+    // Writes one "lowMicros,highMicros,count" row per non-empty bucket
+    public synchronized void appendCsvRows(String name, StringBuilder out) {
+        for (int i = 0; i < mCounts.length; i++) {
+            if (mCounts[i] == 0) continue;
+            out.append(name).append(',')
+                    .append(lowestEquivalentValue(i)).append(',')
+                    .append(highestEquivalentValue(i)).append(',')
+                    .append(mCounts[i]).append('\n');
+        }
+    }
+
+    static int indexFor(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = msb - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int shift = offset / SUB_BUCKET_COUNT + 1;
+        long subBucket = offset % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return subBucket << shift;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+        return lowestEquivalentValue(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.focus;
+
+// Collapses the burst of window-state events a single app launch produces
+// (splash, main activity, dialogs) into one overlay launch.
+// A launch is suppressed when the same (package, decision) pair was launched
+// less than the configured window ago. AppLockService calls reset() whenever the
+// foreground moves to a different app, our own overlay included: only the duplicates that
+// arrive before the overlay is up are absorbed, and a relaunch after dismissing it is not.
+public final class LaunchCoalescer {
+
+    private static final int NO_DECISION = -1;
+
+    private final long mWindowMillis;
+
+    private String mLastPackage;
+    private int mLastDecision = NO_DECISION;
+    private long mLastLaunchMillis;
+
+    public LaunchCoalescer(long windowMillis) {
+        mWindowMillis = windowMillis;
+    }
+
+    // Returns true if the caller should go ahead and start the overlay
+    public boolean shouldLaunch(CharSequence packageName, int decision, long nowMillis) {
+        if (decision == mLastDecision
+                && nowMillis - mLastLaunchMillis < mWindowMillis
+                && contentEquals(mLastPackage, packageName)) {
+            return false;
+        }
+
+        mLastPackage = packageName.toString();
+        mLastDecision = decision;
+        mLastLaunchMillis = nowMillis;
+        return true;
+    }
+
+    public void reset() {
+        mLastPackage = null;
+        mLastDecision = NO_DECISION;
+    }
+
+    private static boolean contentEquals(String a, CharSequence b) {
+        if (a == null || b == null) return false;
+        int length = a.length();
+        if (length != b.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -32,7 +32,6 @@ import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.WriteBatch;
 import com.google.zxing.BarcodeFormat;
@@ -44,9 +43,7 @@ import com.journeyapps.barcodescanner.ScanContract;
 import com.journeyapps.barcodescanner.ScanOptions;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 public class LinkAccountActivity extends AppCompatActivity {
@@ -71,9 +68,6 @@ public class LinkAccountActivity extends AppCompatActivity {
     private LayoutInflater mInflater;
     private CardView mCardScanQR;
 
-    // Real-time listener
-    private ListenerRegistration mUserDocListener;
-
     // QR Code Scanner Launcher
     private final ActivityResultLauncher<ScanOptions> qrCodeScannerLauncher = registerForActivityResult(new ScanContract(),
             result -> {
@@ -136,22 +130,16 @@ public class LinkAccountActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        // Detach the real-time listener to prevent memory leaks
-        if (mUserDocListener != null) {
-            mUserDocListener.remove();
-        }
+    protected void onStop() {
+        super.onStop();
+        NotificationOutbox.get().flush(); // don't leave the link event in memory while in the background
     }
 
+    // Shared with the parent dashboard's roster, which watches the same document
     private void setupRealTimeListener() {
-        mUserDocListener = mStore.collection("users").document(mCurrentUserId)
-                .addSnapshotListener((documentSnapshot, error) -> {
-                    if (error != null) {
-                        Log.w(TAG, "User document listener failed.", error);
-                        return;
-                    }
-                    if (documentSnapshot != null && documentSnapshot.exists()) {
+        ListenerRegistry.get().listen(this, mStore.collection("users").document(mCurrentUserId),
+                (documentSnapshot, restart) -> {
+                    if (documentSnapshot.exists()) {
                         processUserData(documentSnapshot);
                     }
                 });
@@ -281,7 +269,8 @@ public class LinkAccountActivity extends AppCompatActivity {
                         Toast.makeText(this, "Accounts linked successfully!", Toast.LENGTH_SHORT).show();
                         mEditTextLinkCode.setText("");
                         // --- ADDED: Create notification for the PARENT ---
-                        createLinkNotification(parentId, studentName);
+                        NotificationOutbox.get().post(parentId, studentId, studentName,
+                                NotificationOutbox.TYPE_LINKED, "has successfully linked their account with yours.");
                         // --- END ---
                     }).addOnFailureListener(e -> {
                         Toast.makeText(this, "Failed to link accounts.", Toast.LENGTH_SHORT).show();
@@ -396,30 +385,6 @@ public class LinkAccountActivity extends AppCompatActivity {
         });
     }
 
-    // --- THIS IS THE FIX ---
-    private void createLinkNotification(String parentId, String studentName) {
-        if (parentId == null || parentId.isEmpty()) {
-            Log.d(TAG, "No parent ID found, cannot send notification.");
-            return;
-        }
-
-        Map<String, Object> notificationData = new HashMap<>();
-        notificationData.put("parentId", parentId);
-        notificationData.put("studentName", studentName); // Use the student's name
-        notificationData.put("message", "has successfully linked their account with yours.");
-        notificationData.put("timestamp", FieldValue.serverTimestamp());
-
-        // --- ADDED: This field is required by the parent's query ---
-        notificationData.put("read", false);
-        // --- END OF FIX ---
-
-        mStore.collection("notifications")
-                .add(notificationData)
-                .addOnSuccessListener(documentReference -> Log.d(TAG, "Link notification request created successfully."))
-                .addOnFailureListener(e -> Log.w(TAG, "Error creating link notification request", e));
-    }
-    // --- END ---
-
     private void goToLogin() {
         Intent intent = new Intent(LinkAccountActivity.this, LoginActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
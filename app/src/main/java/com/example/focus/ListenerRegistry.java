@@ -0,0 +1,295 @@
+package com.example.focus;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SnapshotMetadata;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Firestore snapshot listeners shared by all screens. Subscriptions to the same document or
+// query (equal DocumentReference/Query) share one Firestore listener, which stays attached
+// while at least one subscriber's lifecycle is started: everything detaches on ON_STOP,
+// re-attaches on ON_START and is dropped on ON_DESTROY.
+//
+// A subscriber joining a listener that is already live gets its latest snapshot straight away.
+// That first snapshot is flagged 'restart' and holds the full state: for queries, read
+// getDocuments() from it and throw away anything built from earlier document changes.
+// Later snapshots' getDocumentChanges() are relative to the one before. Main thread only.
+public final class ListenerRegistry {
+
+    private static final String TAG = "ListenerRegistry";
+
+    public interface Subscriber<T> {
+        void onSnapshot(@NonNull T snapshot, boolean restart);
+    }
+
+    private static ListenerRegistry sInstance;
+
+    // One per distinct document or query
+    private final class Entry {
+        final Object key; // DocumentReference or Query
+        final List<Subscription> subscriptions = new ArrayList<>();
+        ListenerRegistration registration;
+        Object latest; // the last snapshot while attached
+
+        Entry(Object key) {
+            this.key = key;
+        }
+
+        int activeCount() {
+            int active = 0;
+            for (Subscription subscription : subscriptions) {
+                if (subscription.active) active++;
+            }
+            return active;
+        }
+
+        void attach() {
+            if (key instanceof DocumentReference) {
+                registration = ((DocumentReference) key).addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.w(TAG, "Listen failed for " + ((DocumentReference) key).getPath(), error);
+                        return;
+                    }
+                    if (snapshot != null) onSnapshot(this, snapshot, snapshot.getMetadata(),
+                            snapshot.exists() ? estimateSize(snapshot) : 0);
+                });
+            } else {
+                registration = ((Query) key).addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.w(TAG, "Listen failed for a query", error);
+                        return;
+                    }
+                    if (snapshot == null) return;
+                    long bytes = 0;
+                    for (DocumentChange change : snapshot.getDocumentChanges()) {
+                        if (change.getType() != DocumentChange.Type.REMOVED) bytes += estimateSize(change.getDocument());
+                    }
+                    onSnapshot(this, snapshot, snapshot.getMetadata(), bytes);
+                });
+            }
+            mAttachCount++;
+        }
+
+        void detach() {
+            registration.remove();
+            registration = null;
+            latest = null;
+        }
+    }
+
+    private final class Subscription implements ListenerRegistration, DefaultLifecycleObserver {
+        final Entry entry;
+        final LifecycleOwner owner;
+        final Subscriber<Object> subscriber;
+        boolean active;
+        boolean needsRestart = true;
+
+        Subscription(Entry entry, LifecycleOwner owner, Subscriber<Object> subscriber) {
+            this.entry = entry;
+            this.owner = owner;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onStart(@NonNull LifecycleOwner owner) {
+            activate(this);
+        }
+
+        @Override
+        public void onStop(@NonNull LifecycleOwner owner) {
+            deactivate(this);
+        }
+
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            remove();
+        }
+
+        @Override
+        public void remove() {
+            if (!entry.subscriptions.contains(this)) return;
+            deactivate(this);
+            owner.getLifecycle().removeObserver(this);
+            entry.subscriptions.remove(this);
+            if (entry.subscriptions.isEmpty()) mEntries.remove(entry.key);
+        }
+    }
+
+    private final Map<Object, Entry> mEntries = new HashMap<>();
+
+    // Debug counters
+    private long mAttachCount;
+    private long mSnapshotCount;
+    private long mServerSnapshotCount;
+    private long mSnapshotBytes;
+
+    private ListenerRegistry() {}
+
+    public static synchronized ListenerRegistry get() {
+        if (sInstance == null) {
+            sInstance = new ListenerRegistry();
+        }
+        return sInstance;
+    }
+
+    @SuppressWarnings("unchecked")
+    public ListenerRegistration listen(LifecycleOwner owner, DocumentReference document,
+                                       Subscriber<DocumentSnapshot> subscriber) {
+        return subscribe(owner, document, (Subscriber<Object>) (Subscriber<?>) subscriber);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ListenerRegistration listen(LifecycleOwner owner, Query query, Subscriber<QuerySnapshot> subscriber) {
+        return subscribe(owner, query, (Subscriber<Object>) (Subscriber<?>) subscriber);
+    }
+
+    private ListenerRegistration subscribe(LifecycleOwner owner, Object key, Subscriber<Object> subscriber) {
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            mEntries.put(key, entry);
+        }
+        Subscription subscription = new Subscription(entry, owner, subscriber);
+        entry.subscriptions.add(subscription);
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            subscription.remove();
+            return subscription;
+        }
+        // Replays ON_CREATE/ON_START right away if the owner is already past them
+        owner.getLifecycle().addObserver(subscription);
+        return subscription;
+    }
+
+    private void activate(Subscription subscription) {
+        if (subscription.active) return;
+        subscription.active = true;
+        subscription.needsRestart = true;
+        Entry entry = subscription.entry;
+        if (entry.registration == null) {
+            entry.attach();
+        } else if (entry.latest != null) {
+            deliver(subscription, entry.latest);
+        }
+    }
+
+    private void deactivate(Subscription subscription) {
+        if (!subscription.active) return;
+        subscription.active = false;
+        Entry entry = subscription.entry;
+        if (entry.registration != null && entry.activeCount() == 0) entry.detach();
+    }
+
+    private void onSnapshot(Entry entry, Object snapshot, SnapshotMetadata metadata, long bytes) {
+        mSnapshotCount++;
+        if (!metadata.isFromCache()) {
+            mServerSnapshotCount++;
+            mSnapshotBytes += bytes;
+        }
+        entry.latest = snapshot;
+        // A subscriber may remove itself (or others) from its callback
+        for (Subscription subscription : new ArrayList<>(entry.subscriptions)) {
+            if (subscription.active && entry.latest == snapshot) deliver(subscription, snapshot);
+        }
+    }
+
+    private static void deliver(Subscription subscription, Object snapshot) {
+        boolean restart = subscription.needsRestart;
+        subscription.needsRestart = false;
+        subscription.subscriber.onSnapshot(snapshot, restart);
+    }
+
+    // --- Debug counters ---
+
+    public int getLiveListenerCount() {
+        int live = 0;
+        for (Entry entry : mEntries.values()) {
+            if (entry.registration != null) live++;
+        }
+        return live;
+    }
+
+    public int getSubscriberCount() {
+        int subscribers = 0;
+        for (Entry entry : mEntries.values()) {
+            subscribers += entry.activeCount();
+        }
+        return subscribers;
+    }
+
+    // Rough Firestore-style document sizes of what came from the server, not wire bytes
+    public long getSnapshotBytes() {
+        return mSnapshotBytes;
+    }
+
+    public String summary() {
+        return String.format(Locale.US,
+                "Firestore listeners\n  live: %d (%d subscribers)\n  attached since start: %d\n"
+                        + "  snapshots: %d (%d from server)\n  server documents: ~%.1f KB",
+                getLiveListenerCount(), getSubscriberCount(), mAttachCount,
+                mSnapshotCount, mServerSnapshotCount, mSnapshotBytes / 1024.0);
+    }
+
+    // Firestore's storage size rules: name + fields, strings as UTF-8 + 1, numbers 8 bytes
+    private static long estimateSize(DocumentSnapshot doc) {
+        long size = doc.getReference().getPath().length() + 1 + 16;
+        Map<String, Object> data = doc.getData();
+        return data != null ? size + estimateSize(data) : size;
+    }
+
+    private static long estimateSize(Object value) {
+        if (value == null || value instanceof Boolean) return 1;
+        if (value instanceof String) return utf8Length((String) value) + 1;
+        if (value instanceof Number || value instanceof Date || value instanceof Timestamp) return 8;
+        if (value instanceof GeoPoint) return 16;
+        if (value instanceof DocumentReference) return ((DocumentReference) value).getPath().length() + 1;
+        if (value instanceof Map) {
+            long size = 0;
+            for (Map.Entry<?, ?> field : ((Map<?, ?>) value).entrySet()) {
+                size += utf8Length(String.valueOf(field.getKey())) + 1 + estimateSize(field.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            long size = 0;
+            for (Object element : (List<?>) value) {
+                size += estimateSize(element);
+            }
+            return size;
+        }
+        return 8; // blobs and anything newer
+    }
+
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) length++;
+            else if (c < 0x800) length += 2;
+            else if (!Character.isHighSurrogate(c)) length += 3;
+            else {
+                length += 4; // the pair is one code point
+                i++;
+            }
+        }
+        return length;
+    }
+}
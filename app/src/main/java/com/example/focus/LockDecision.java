@@ -0,0 +1,63 @@
+package com.example.focus;
+
+// The blocking decision AppLockService makes for every foreground window change.
+// Kept free of Android types so it can be benchmarked on a plain JVM (see :benchmark).
+public final class LockDecision {
+
+    public static final int NONE = -1;
+    public static final int FOCUS_RELAUNCH = 0;
+    public static final int PIN_DISABLE_ADMIN = 1;
+    public static final int PIN_UNLOCK_SETTINGS = 2;
+    public static final int APP_BLOCK = 3;
+
+    public static final String SETTINGS_PACKAGE = "com.android.settings";
+
+    private LockDecision() {}
+
+    public static int decide(LockPolicySnapshot policy, CharSequence packageName, CharSequence className, long nowMillis) {
+        if (policy.isFocusModeActive()) {
+            // Job A: KIOSK MODE WATCHDOG, every other app sends the child back
+            return FOCUS_RELAUNCH;
+        }
+
+        // Job B: SETTINGS lock
+        if (policy.isSettingsLockEnforced()) {
+            if (contains(className, "DeviceAdmin") || contains(className, "DevicePolicy")) {
+                return PIN_DISABLE_ADMIN;
+            }
+            if (contentEquals(packageName, SETTINGS_PACKAGE) && !policy.isSettingsUnlocked(nowMillis)) {
+                return PIN_UNLOCK_SETTINGS;
+            }
+        }
+
+        // Job C: BLOCKED APP check. Only a match pays for a String (bypass lookup).
+        if (policy.isLocked(packageName) && !policy.isBypassed(packageName.toString(), nowMillis)) {
+            return APP_BLOCK;
+        }
+        return NONE;
+    }
+
+    static boolean contentEquals(CharSequence a, String b) {
+        if (a == null) return false;
+        int length = b.length();
+        if (a.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // CharSequence has no contains(); this avoids a toString() per event
+    static boolean contains(CharSequence haystack, String needle) {
+        if (haystack == null) return false;
+        int last = haystack.length() - needle.length();
+        outer:
+        for (int start = 0; start <= last; start++) {
+            for (int i = 0; i < needle.length(); i++) {
+                if (haystack.charAt(start + i) != needle.charAt(i)) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.focus;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+// Latency of the accessibility blocking path, split in two legs:
+//  1. event-to-decision: window event timestamp -> AppLockService decides to launch an overlay
+//  2. decision-to-overlay: startActivity() -> the overlay activity's onResume()
+// The decision time travels to the overlay as an Intent extra, so the second leg
+// covers intent dispatch, process scheduling and activity creation.
+public final class LockLatencyMetrics {
+
+    public static final int PATH_APP_BLOCK = 0;
+    public static final int PATH_PIN_CHECK = 1;
+    public static final int PATH_FOCUS_RELAUNCH = 2;
+    private static final String[] PATH_NAMES = {"app_block", "pin_check", "focus_relaunch"};
+
+    private static final String EXTRA_DECISION_NANOS = "LATENCY_DECISION_NANOS";
+    private static final String EXTRA_DECISION_PATH = "LATENCY_DECISION_PATH";
+
+    private static final LatencyHistogram[] sEventToDecision = newHistograms();
+    private static final LatencyHistogram[] sDecisionToOverlay = newHistograms();
+
+    private LockLatencyMetrics() {}
+
+    // Called by AppLockService right before it starts an overlay.
+    // eventAgeMillis is how old the event already was when the handler started running.
+    public static void onDecision(Intent overlayIntent, int path, long eventAgeMillis, long handlerStartNanos) {
+        long decisionNanos = SystemClock.elapsedRealtimeNanos();
+        long handlerMicros = (decisionNanos - handlerStartNanos) / 1000;
+        sEventToDecision[path].record(Math.max(0, eventAgeMillis) * 1000 + handlerMicros);
+
+        overlayIntent.putExtra(EXTRA_DECISION_NANOS, decisionNanos);
+        overlayIntent.putExtra(EXTRA_DECISION_PATH, path);
+    }
+
+    // Called from the overlay's onResume(). Only the first resume after a decision counts.
+    public static void onOverlayResumed(Intent intent) {
+        if (intent == null || !intent.hasExtra(EXTRA_DECISION_NANOS)) return;
+
+        long decisionNanos = intent.getLongExtra(EXTRA_DECISION_NANOS, 0);
+        int path = intent.getIntExtra(EXTRA_DECISION_PATH, -1);
+        intent.removeExtra(EXTRA_DECISION_NANOS);
+        intent.removeExtra(EXTRA_DECISION_PATH);
+
+        if (path < 0 || path >= PATH_NAMES.length) return;
+        sDecisionToOverlay[path].record((SystemClock.elapsedRealtimeNanos() - decisionNanos) / 1000);
+    }
+
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (int path = 0; path < PATH_NAMES.length; path++) {
+            sb.append(PATH_NAMES[path]).append('\n')
+                    .append("  event -> decision\n    ").append(sEventToDecision[path].summary()).append('\n')
+                    .append("  decision -> overlay resumed\n    ").append(sDecisionToOverlay[path].summary()).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    public static void reset() {
+        for (int path = 0; path < PATH_NAMES.length; path++) {
+            sEventToDecision[path].reset();
+            sDecisionToOverlay[path].reset();
+        }
+    }
+
+    // Dumps every histogram bucket as CSV into the app's external files dir
+    // (Android/data/<package>/files/metrics), which can be pulled with adb without root.
+    public static File exportCsv(Context context) throws IOException {
+        File dir = context.getExternalFilesDir("metrics");
+        if (dir == null) {
+            dir = new File(context.getFilesDir(), "metrics");
+        }
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+
+        StringBuilder csv = new StringBuilder("histogram,low_us,high_us,count\n");
+        for (int path = 0; path < PATH_NAMES.length; path++) {
+            sEventToDecision[path].appendCsvRows(PATH_NAMES[path] + ".event_to_decision", csv);
+            sDecisionToOverlay[path].appendCsvRows(PATH_NAMES[path] + ".decision_to_overlay", csv);
+        }
+
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, "lock_latency_" + stamp + ".csv");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(csv.toString());
+        }
+        return file;
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[PATH_NAMES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.focus;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Immutable copy of every lock rule AppLockService needs to make a decision.
+// The service rebuilds one of these only when the underlying preferences change,
+// so the accessibility event handler never touches SharedPreferences.
+public final class LockPolicySnapshot {
+
+    public static final LockPolicySnapshot EMPTY = new LockPolicySnapshot(
+            false, false, false, 0, Collections.<String>emptySet(), Collections.<String, Long>emptyMap());
+
+    private final boolean mFocusModeActive;
+    private final boolean mSettingsLockActive;
+    private final boolean mHasSecurityPin;
+    private final long mSettingsUnlockedUntil;
+    private final PackageMatcher mLockedApps;
+    private final Map<String, Long> mBypassUntil; // Map<PackageName, UnlockedUntilMillis>
+
+    public LockPolicySnapshot(boolean focusModeActive,
+                              boolean settingsLockActive,
+                              boolean hasSecurityPin,
+                              long settingsUnlockedUntil,
+                              Set<String> lockedApps,
+                              Map<String, Long> bypassUntil) {
+        mFocusModeActive = focusModeActive;
+        mSettingsLockActive = settingsLockActive;
+        mHasSecurityPin = hasSecurityPin;
+        mSettingsUnlockedUntil = settingsUnlockedUntil;
+        mLockedApps = PackageMatcher.compile(lockedApps);
+        mBypassUntil = Collections.unmodifiableMap(new HashMap<>(bypassUntil));
+    }
+
+    public boolean isFocusModeActive() {
+        return mFocusModeActive;
+    }
+
+    // The settings lock only means something once a parent PIN has been synced
+    public boolean isSettingsLockEnforced() {
+        return mSettingsLockActive && mHasSecurityPin;
+    }
+
+    public boolean isSettingsUnlocked(long nowMillis) {
+        return nowMillis <= mSettingsUnlockedUntil;
+    }
+
+    // Accepts the event's CharSequence directly; matching allocates nothing
+    public boolean isLocked(CharSequence packageName) {
+        return mLockedApps.matches(packageName);
+    }
+
+    public boolean isBypassed(String packageName, long nowMillis) {
+        Long until = mBypassUntil.get(packageName);
+        return until != null && nowMillis <= until;
+    }
+}
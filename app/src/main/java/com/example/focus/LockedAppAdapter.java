@@ -1,7 +1,6 @@
 package com.example.focus;
 
 import android.content.Context;
-import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -19,13 +18,11 @@ public class LockedAppAdapter extends RecyclerView.Adapter<LockedAppAdapter.View
     public static class AppInfo {
         public String appName;
         public String packageName;
-        public Drawable icon;
         public boolean isLocked;
 
-        public AppInfo(String name, String pkg, Drawable icon, boolean isLocked) {
+        public AppInfo(String name, String pkg, boolean isLocked) {
             this.appName = name;
             this.packageName = pkg;
-            this.icon = icon;
             this.isLocked = isLocked;
         }
     }
@@ -33,11 +30,13 @@ public class LockedAppAdapter extends RecyclerView.Adapter<LockedAppAdapter.View
     private Context mContext;
     private List<AppInfo> mAppList;
     private Map<String, Boolean> mLockedAppMap; // To track changes
+    private AppCatalog mCatalog; // Icons are loaded lazily, per bound row
 
     public LockedAppAdapter(Context context, List<AppInfo> appList, Map<String, Boolean> lockedAppMap) {
         this.mContext = context;
         this.mAppList = appList;
         this.mLockedAppMap = lockedAppMap;
+        this.mCatalog = AppCatalog.get(context);
     }
 
     @NonNull
@@ -53,7 +52,8 @@ public class LockedAppAdapter extends RecyclerView.Adapter<LockedAppAdapter.View
 
         holder.textAppName.setText(app.appName);
         holder.textAppPackage.setText(app.packageName); // Set the package name
-        holder.imageAppIcon.setImageDrawable(app.icon);
+        mCatalog.loadIcon(holder.imageAppIcon, app.packageName);
+        holder.switchAppLock.setOnCheckedChangeListener(null); // don't report the recycled row's state
         holder.switchAppLock.setChecked(app.isLocked);
 
         holder.switchAppLock.setOnCheckedChangeListener((buttonView, isChecked) -> {
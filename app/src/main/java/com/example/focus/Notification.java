@@ -1,26 +1,71 @@
 package com.example.focus;
 
-import com.google.firebase.firestore.ServerTimestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
 import java.util.Date;
+import java.util.Objects;
 
 // This is a data "model" class to hold notification data from Firestore
 public class Notification {
+    private String id; // Firestore document id, used to diff list updates
     private String studentName;
     private String message;
-    private @ServerTimestamp Date timestamp;
+    private Date timestamp;
     private String studentId;
     private String parentId;
-    private boolean read; // To track if the badge should be shown
+    private String type;  // NotificationOutbox.TYPE_*, missing on older notifications
+    private long count;   // events coalesced into this notification, 0 on older ones
+
+    private Notification() {}
 
-    // Required empty constructor for Firestore
-    public Notification() {}
+    // Reads the fields directly instead of through toObject(), which goes through reflection
+    // for every document on every snapshot
+    public static Notification fromSnapshot(DocumentSnapshot doc) {
+        Notification notification = new Notification();
+        notification.id = doc.getId();
+        notification.studentName = doc.getString("studentName");
+        String message = doc.getString("message");
+        notification.message = message != null ? message : "";
+        // A notification we just wrote has no server time yet; show it as now rather than blank
+        notification.timestamp = doc.getDate("timestamp", DocumentSnapshot.ServerTimestampBehavior.ESTIMATE);
+        notification.studentId = doc.getString("studentId");
+        notification.parentId = doc.getString("parentId");
+        notification.type = doc.getString(NotificationOutbox.FIELD_TYPE);
+        Long count = doc.getLong(NotificationOutbox.FIELD_COUNT);
+        notification.count = count != null ? count : 0;
+        return notification;
+    }
 
+    public String getId() { return id; }
     public String getStudentName() { return studentName; }
     public String getMessage() { return message; }
     public Date getTimestamp() { return timestamp; }
     public String getStudentId() { return studentId; }
     public String getParentId() { return parentId; }
-    public boolean isRead() { return read; }
+    public String getType() { return type; }
+    public long getCount() { return count; }
+
+    // The message, or a summary when several events were coalesced into this notification
+    public String getSummary() {
+        if (count <= 1 || type == null) return message;
+        switch (type) {
+            case NotificationOutbox.TYPE_BREAK:
+                return "has started " + count + " breaks.";
+            case NotificationOutbox.TYPE_FINISHED:
+                return "finished " + count + " focus sessions!";
+            case NotificationOutbox.TYPE_CANCELLED:
+                return "cancelled " + count + " focus sessions with a PIN.";
+            default:
+                return message + " (" + count + "x)";
+        }
+    }
 
-    // We don't need setters, Firestore sets them directly
+    // Everything a row shows
+    public boolean sameContentAs(Notification other) {
+        return count == other.count
+                && Objects.equals(studentName, other.studentName)
+                && Objects.equals(message, other.message)
+                && Objects.equals(timestamp, other.timestamp)
+                && Objects.equals(type, other.type);
+    }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import android.util.Log;
 import android.view.View;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -12,19 +13,19 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.WriteBatch;
-
-import java.util.ArrayList;
-import java.util.List;
 
 public class NotificationActivity extends AppCompatActivity {
 
     private static final String TAG = "NotificationActivity";
 
+    // The badge count the list was opened from; without it everything counted so far is read
+    public static final String EXTRA_UNREAD_SEEN = "UNREAD_SEEN";
+
+    // Start fetching the next page this many rows before the end of the list
+    private static final int LOAD_MORE_THRESHOLD = 10;
+
     // Firebase
     private FirebaseAuth mAuth;
     private FirebaseFirestore mStore;
@@ -34,9 +35,8 @@ public class NotificationActivity extends AppCompatActivity {
     private RecyclerView mRecyclerNotifications;
     private TextView mTextNoNotifications;
     private NotificationAdapter mAdapter;
-    private List<Notification> mNotificationList;
 
-    private ListenerRegistration mNotificationListener;
+    private NotificationFeed mFeed;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -67,10 +67,18 @@ public class NotificationActivity extends AppCompatActivity {
         mTextNoNotifications = findViewById(R.id.textNoNotifications);
 
         // --- Setup RecyclerView ---
-        mNotificationList = new ArrayList<>();
-        mAdapter = new NotificationAdapter(this, mNotificationList);
-        mRecyclerNotifications.setLayoutManager(new LinearLayoutManager(this));
+        mAdapter = new NotificationAdapter(this);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        mRecyclerNotifications.setLayoutManager(layoutManager);
         mRecyclerNotifications.setAdapter(mAdapter);
+        mRecyclerNotifications.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= mAdapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    mFeed.loadMore();
+                }
+            }
+        });
 
         // Load notifications
         loadNotifications();
@@ -83,60 +91,39 @@ public class NotificationActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         // Remove the real-time listener when the activity is destroyed
-        if (mNotificationListener != null) {
-            mNotificationListener.remove();
+        if (mFeed != null) {
+            mFeed.stop();
         }
     }
 
     private void loadNotifications() {
-        mNotificationListener = mStore.collection("notifications")
-                .whereEqualTo("parentId", mParentId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(50) // Get the latest 50
-                .addSnapshotListener((querySnapshot, error) -> {
-                    if (error != null) {
-                        Log.w(TAG, "Error listening for notifications.", error);
-                        return;
-                    }
-
-                    if (querySnapshot == null || querySnapshot.isEmpty()) {
-                        mTextNoNotifications.setVisibility(View.VISIBLE);
-                        mRecyclerNotifications.setVisibility(View.GONE);
-                    } else {
-                        mTextNoNotifications.setVisibility(View.GONE);
-                        mRecyclerNotifications.setVisibility(View.VISIBLE);
-
-                        mNotificationList.clear();
-                        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                            Notification notification = doc.toObject(Notification.class);
-                            mNotificationList.add(notification);
-                        }
-                        mAdapter.notifyDataSetChanged();
-                    }
-                });
+        mFeed = new NotificationFeed(mStore, mParentId, (notifications, loaded) -> {
+            if (!loaded) return;
+            boolean empty = notifications.isEmpty();
+            mTextNoNotifications.setVisibility(empty ? View.VISIBLE : View.GONE);
+            mRecyclerNotifications.setVisibility(empty ? View.GONE : View.VISIBLE);
+            mAdapter.submitList(notifications);
+        });
+        mFeed.start(this);
     }
 
-    // This method finds all unread notifications for this parent and marks them as read
+    // Marks the events the badge showed as read: one transaction on the unread counter behind
+    // it, however many notifications there are. Events that NotificationOutbox or the session
+    // flusher count in the meantime stay unread, and the counter never goes below zero, even
+    // when a second device does the same. Transactions need the server, so offline the badge
+    // keeps its count until the list is opened again.
     private void markNotificationsAsRead() {
-        mStore.collection("notifications")
-                .whereEqualTo("parentId", mParentId)
-                .whereEqualTo("read", false) // Find only unread ones
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (querySnapshot.isEmpty()) {
-                        Log.d(TAG, "No unread notifications to mark as read.");
-                        return;
-                    }
-
-                    WriteBatch batch = mStore.batch();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        batch.update(doc.getReference(), "read", true);
-                    }
-
-                    batch.commit()
-                            .addOnSuccessListener(aVoid -> Log.d(TAG, "Successfully marked " + querySnapshot.size() + " notifications as read."))
-                            .addOnFailureListener(e -> Log.w(TAG, "Failed to mark notifications as read", e));
-                })
-                .addOnFailureListener(e -> Log.w(TAG, "Failed to query for unread notifications", e));
+        DocumentReference counter = NotificationOutbox.unreadCounter(mStore, mParentId);
+        long seen = getIntent().getLongExtra(EXTRA_UNREAD_SEEN, Long.MAX_VALUE);
+        mStore.runTransaction(transaction -> {
+            Long unread = transaction.get(counter).getLong(NotificationOutbox.FIELD_UNREAD);
+            long remaining = UnreadCounter.afterRead(unread, seen);
+            if (unread != null && remaining != unread) {
+                transaction.update(counter, NotificationOutbox.FIELD_UNREAD, remaining);
+            }
+            return null;
+        })
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Notifications marked as read."))
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to mark notifications as read", e));
     }
-}
\ No newline at end of file
+}
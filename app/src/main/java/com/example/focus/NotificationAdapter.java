@@ -8,21 +8,51 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapter.ViewHolder> {
+// Lists are diffed on a background thread (submitList), so a new or updated
+// notification only rebinds its own row
+public class NotificationAdapter extends ListAdapter<Notification, NotificationAdapter.ViewHolder> {
+
+    private static final DiffUtil.ItemCallback<Notification> DIFF_CALLBACK = new DiffUtil.ItemCallback<Notification>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Notification oldItem, @NonNull Notification newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Notification oldItem, @NonNull Notification newItem) {
+            return oldItem.sameContentAs(newItem);
+        }
+    };
 
     private Context mContext;
-    private List<Notification> mNotificationList;
+    // Stable ids for the document ids; hash codes could collide
+    private final Map<String, Long> mItemIds = new HashMap<>();
 
-    public NotificationAdapter(Context context, List<Notification> notificationList) {
+    public NotificationAdapter(Context context) {
+        super(DIFF_CALLBACK);
         this.mContext = context;
-        this.mNotificationList = notificationList;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String id = getItem(position).getId();
+        Long itemId = mItemIds.get(id);
+        if (itemId == null) {
+            itemId = (long) mItemIds.size();
+            mItemIds.put(id, itemId);
+        }
+        return itemId;
     }
 
     @NonNull
@@ -34,9 +64,9 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Notification notification = mNotificationList.get(position);
+        Notification notification = getItem(position);
 
-        String fullMessage = notification.getStudentName() + " " + notification.getMessage();
+        String fullMessage = notification.getStudentName() + " " + notification.getSummary();
         holder.textMessage.setText(fullMessage);
 
         if (notification.getTimestamp() != null) {
@@ -45,15 +75,16 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
             holder.textTime.setText("Just now");
         }
 
-        // Set icon based on message content
+        // Set icon based on the type (or the message content, for older notifications)
+        String type = notification.getType();
         String message = notification.getMessage().toLowerCase();
-        if (message.contains("break")) {
+        if (NotificationOutbox.TYPE_BREAK.equals(type) || (type == null && message.contains("break"))) {
             holder.iconType.setImageResource(R.drawable.ic_break_time);
             holder.iconType.clearColorFilter();
-        } else if (message.contains("cancelled")) {
+        } else if (NotificationOutbox.TYPE_CANCELLED.equals(type) || (type == null && message.contains("cancelled"))) {
             holder.iconType.setImageResource(android.R.drawable.ic_dialog_alert);
             holder.iconType.setColorFilter(ContextCompat.getColor(mContext, android.R.color.holo_red_light));
-        } else if (message.contains("linked")) {
+        } else if (NotificationOutbox.TYPE_LINKED.equals(type) || (type == null && message.contains("linked"))) {
             holder.iconType.setImageResource(R.drawable.ic_link_code_icon);
             holder.iconType.clearColorFilter();
         } else {
@@ -62,11 +93,6 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return mNotificationList.size();
-    }
-
     public static class ViewHolder extends RecyclerView.ViewHolder {
         public ImageView iconType;
         public TextView textMessage;
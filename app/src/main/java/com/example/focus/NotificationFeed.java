@@ -0,0 +1,148 @@
+package com.example.focus;
+
+import android.util.Log;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A parent's notifications, newest first. The newest page is live and kept up to date from
+// getDocumentChanges(); older pages are fetched once each, on demand, with startAfter().
+// A notification pushed out of the live page by a newer one moves to the top of the older
+// ones, and one that is updated (coalesced) moves from the older ones back to the live page.
+// Main thread only.
+public final class NotificationFeed {
+
+    private static final String TAG = "NotificationFeed";
+
+    private static final int PAGE_SIZE = 30;
+
+    public interface Listener {
+        // A new list on every change; the feed never mutates a list it has handed out
+        void onFeedChanged(List<Notification> notifications, boolean loaded);
+    }
+
+    private final Query mQuery;
+    private final Listener mListener;
+
+    private final List<Notification> mLive = new ArrayList<>();
+    private final List<Notification> mOlder = new ArrayList<>();
+    private DocumentSnapshot mOldest; // cursor for the next page
+    private ListenerRegistration mRegistration;
+    private boolean mLiveLoaded;
+    private boolean mLoading;
+    private boolean mEndReached;
+    private int mRestarts; // a page requested before the last restart is dropped
+
+    public NotificationFeed(FirebaseFirestore store, String parentId, Listener listener) {
+        mQuery = store.collection("notifications")
+                .whereEqualTo("parentId", parentId)
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+        mListener = listener;
+    }
+
+    // The live page follows the owner's lifecycle through ListenerRegistry
+    public void start(LifecycleOwner owner) {
+        if (mRegistration != null) return;
+        mRegistration = ListenerRegistry.get().listen(owner, mQuery.limit(PAGE_SIZE), this::onLiveSnapshot);
+    }
+
+    public void stop() {
+        if (mRegistration != null) {
+            mRegistration.remove();
+            mRegistration = null;
+        }
+    }
+
+    // Fetches the next older page, unless one is on its way or there is nothing left
+    public void loadMore() {
+        if (!mLiveLoaded || mLoading || mEndReached || mOldest == null) return;
+        mLoading = true;
+        int restarts = mRestarts;
+        mQuery.startAfter(mOldest).limit(PAGE_SIZE).get()
+                .addOnSuccessListener(page -> {
+                    mLoading = false;
+                    if (mRegistration == null || restarts != mRestarts) return; // stopped or restarted meanwhile
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        if (indexOf(mLive, doc.getId()) < 0 && indexOf(mOlder, doc.getId()) < 0) {
+                            mOlder.add(Notification.fromSnapshot(doc));
+                        }
+                    }
+                    if (!page.isEmpty()) {
+                        mOldest = page.getDocuments().get(page.size() - 1);
+                    }
+                    mEndReached = page.size() < PAGE_SIZE;
+                    publish();
+                })
+                .addOnFailureListener(e -> {
+                    mLoading = false;
+                    Log.w(TAG, "Error loading older notifications.", e);
+                });
+    }
+
+    private void onLiveSnapshot(QuerySnapshot snapshot, boolean restart) {
+        if (restart) {
+            // First snapshot after (re)attaching: rebuild the live page from it. What was pushed out
+            // while detached can't be told apart from older pages, so those are loaded again.
+            mRestarts++;
+            mLive.clear();
+            mOlder.clear();
+            for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                mLive.add(Notification.fromSnapshot(doc));
+            }
+            mOldest = snapshot.isEmpty() ? null : snapshot.getDocuments().get(snapshot.size() - 1);
+            mLiveLoaded = true;
+            mEndReached = snapshot.size() < PAGE_SIZE;
+            publish();
+            return;
+        }
+
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            Notification notification = Notification.fromSnapshot(change.getDocument());
+            switch (change.getType()) {
+                case ADDED:
+                    mLive.add(change.getNewIndex(), notification);
+                    int older = indexOf(mOlder, notification.getId());
+                    if (older >= 0) mOlder.remove(older);
+                    break;
+                case MODIFIED:
+                    mLive.remove(change.getOldIndex());
+                    mLive.add(change.getNewIndex(), notification);
+                    break;
+                case REMOVED:
+                    // Notifications are never deleted, so it was pushed out of the live page
+                    mLive.remove(change.getOldIndex());
+                    mOlder.add(0, notification);
+                    if (mOlder.size() == 1) mOldest = change.getDocument();
+                    break;
+            }
+        }
+
+        if (mOlder.isEmpty() && !snapshot.isEmpty()) {
+            mOldest = snapshot.getDocuments().get(snapshot.size() - 1);
+        }
+        publish();
+    }
+
+    private void publish() {
+        List<Notification> notifications = new ArrayList<>(mLive.size() + mOlder.size());
+        notifications.addAll(mLive);
+        notifications.addAll(mOlder);
+        mListener.onFeedChanged(notifications, mLiveLoaded);
+    }
+
+    private static int indexOf(List<Notification> notifications, String id) {
+        for (int i = 0; i < notifications.size(); i++) {
+            if (notifications.get(i).getId().equals(id)) return i;
+        }
+        return -1;
+    }
+}
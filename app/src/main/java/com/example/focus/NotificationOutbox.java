@@ -0,0 +1,159 @@
+package com.example.focus;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Parent notifications, coalesced. Events of one type from one student that fall in the same
+// time window share a single notifications/{studentId}_{type}_{window} document: the first
+// event creates it, later ones bump its count, message and timestamp and mark it unread
+// again. Events posted in quick succession are collected for a moment and written in one batch,
+// at most FLUSH_DELAY_MILLIS after the first of them however many follow. Screens that post
+// call flush() when they stop: once committed, Firestore keeps the batch in its local write
+// queue, so the events survive the process being killed. Main thread only.
+public final class NotificationOutbox {
+
+    private static final String TAG = "NotificationOutbox";
+
+    public static final String TYPE_BREAK = "break";
+    public static final String TYPE_FINISHED = "finished";
+    public static final String TYPE_CANCELLED = "cancelled";
+    public static final String TYPE_LINKED = "linked";
+
+    public static final String FIELD_TYPE = "type";
+    public static final String FIELD_COUNT = "count";
+
+    // users/{parentId}/counters/notifications -> unread: events since the list was last opened.
+    // Every writer of a notification bumps it in the same batch or transaction.
+    public static final String FIELD_UNREAD = "unread";
+
+    private static final long WINDOW_MILLIS = 15 * 60 * 1000;
+    private static final long FLUSH_DELAY_MILLIS = 2000;
+
+    private static NotificationOutbox sInstance;
+
+    private static final class Pending {
+        final String parentId;
+        final String studentId;
+        final String studentName;
+        final String type;
+        String message;
+        long count;
+
+        Pending(String parentId, String studentId, String studentName, String type) {
+            this.parentId = parentId;
+            this.studentId = studentId;
+            this.studentName = studentName;
+            this.type = type;
+        }
+    }
+
+    private final FirebaseFirestore mStore = FirebaseFirestore.getInstance();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mFlush = this::flush;
+    private final Map<String, Pending> mPending = new LinkedHashMap<>(); // by document id
+
+    private NotificationOutbox() {}
+
+    public static synchronized NotificationOutbox get() {
+        if (sInstance == null) {
+            sInstance = new NotificationOutbox();
+        }
+        return sInstance;
+    }
+
+    // Queues one event for the parent. 'message' follows the student's name, e.g. "has started a break."
+    public void post(String parentId, String studentId, String studentName, String type, String message) {
+        if (parentId == null || parentId.isEmpty()) {
+            Log.d(TAG, "No parent ID found, cannot send notification.");
+            return;
+        }
+
+        // Later events join the batch the first one scheduled instead of pushing it back
+        if (mPending.isEmpty()) {
+            mHandler.postDelayed(mFlush, FLUSH_DELAY_MILLIS);
+        }
+
+        String id = documentId(studentId, type, System.currentTimeMillis());
+        Pending pending = mPending.get(id);
+        if (pending == null) {
+            pending = new Pending(parentId, studentId, studentName, type);
+            mPending.put(id, pending);
+        }
+        pending.message = message;
+        pending.count++;
+    }
+
+    // Writes everything queued so far in one batch
+    public void flush() {
+        mHandler.removeCallbacks(mFlush);
+        if (mPending.isEmpty()) return;
+
+        WriteBatch batch = mStore.batch();
+        Map<String, Long> unreadByParent = new HashMap<>();
+        for (Map.Entry<String, Pending> entry : mPending.entrySet()) {
+            Pending p = entry.getValue();
+            batch.set(mStore.collection("notifications").document(entry.getKey()),
+                    fields(p.parentId, p.studentId, p.studentName, p.type, p.message, p.count),
+                    SetOptions.merge());
+            Long unread = unreadByParent.get(p.parentId);
+            unreadByParent.put(p.parentId, (unread != null ? unread : 0) + p.count);
+        }
+        for (Map.Entry<String, Long> entry : unreadByParent.entrySet()) {
+            batch.set(unreadCounter(mStore, entry.getKey()), unreadIncrement(entry.getValue()), SetOptions.merge());
+        }
+        int events = mPending.size();
+        mPending.clear();
+
+        batch.commit()
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Wrote " + events + " coalesced notification(s)"))
+                .addOnFailureListener(e -> Log.w(TAG, "Error writing notifications", e));
+    }
+
+    // --- Shared with SessionJournalFlusher, which writes "finished" notifications in its session batch,
+    // and with the screens that read the counter ---
+
+    public static DocumentReference document(FirebaseFirestore store, String studentId, String type, long timestamp) {
+        return store.collection("notifications").document(documentId(studentId, type, timestamp));
+    }
+
+    // Fields to set-merge into a coalesced document for 'count' more events
+    public static Map<String, Object> fields(String parentId, String studentId, String studentName,
+                                             String type, String message, long count) {
+        Map<String, Object> notificationData = new HashMap<>();
+        notificationData.put("parentId", parentId);
+        notificationData.put("studentId", studentId);
+        notificationData.put("studentName", studentName);
+        notificationData.put("message", message);
+        notificationData.put("timestamp", FieldValue.serverTimestamp());
+        notificationData.put(FIELD_TYPE, type);
+        notificationData.put(FIELD_COUNT, FieldValue.increment(count));
+        return notificationData;
+    }
+
+    public static DocumentReference unreadCounter(FirebaseFirestore store, String parentId) {
+        return store.collection("users").document(parentId).collection("counters").document("notifications");
+    }
+
+    // To set-merge into the unread counter
+    public static Map<String, Object> unreadIncrement(long events) {
+        Map<String, Object> counter = new HashMap<>();
+        counter.put(FIELD_UNREAD, FieldValue.increment(events));
+        return counter;
+    }
+
+    private static String documentId(String studentId, String type, long timestamp) {
+        return String.format(Locale.US, "%s_%s_%d", studentId, type, timestamp / WINDOW_MILLIS);
+    }
+}
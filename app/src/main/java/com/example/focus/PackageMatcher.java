@@ -0,0 +1,158 @@
+package com.example.focus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compiled char-trie over the locked package names.
+// Patterns are either exact package names ("com.instagram.android") or wildcard
+// prefixes ending in ".*" ("com.facebook.*" matches "com.facebook.katana" and
+// "com.facebook.orca"). Matching walks the trie straight off the CharSequence
+// the accessibility event hands us, so a lookup never allocates.
+public final class PackageMatcher {
+
+    public static final String WILDCARD_SUFFIX = ".*";
+
+    public static final PackageMatcher EMPTY = compile(Collections.<String>emptySet());
+
+    // Node n owns the edges [mEdgeStart[n], mEdgeStart[n + 1]), sorted by char
+    private final int[] mEdgeStart;
+    private final char[] mEdgeChars;
+    private final int[] mEdgeTargets;
+    private final boolean[] mExact;  // An exact package name ends at this node
+    private final boolean[] mPrefix; // A "prefix.*" rule ends at this node
+    private final int mPatternCount;
+
+    private PackageMatcher(int[] edgeStart, char[] edgeChars, int[] edgeTargets,
+                           boolean[] exact, boolean[] prefix, int patternCount) {
+        mEdgeStart = edgeStart;
+        mEdgeChars = edgeChars;
+        mEdgeTargets = edgeTargets;
+        mExact = exact;
+        mPrefix = prefix;
+        mPatternCount = patternCount;
+    }
+
+    public static PackageMatcher compile(Collection<String> patterns) {
+        BuildNode root = new BuildNode();
+        int patternCount = 0;
+
+        for (String pattern : patterns) {
+            if (pattern == null) continue;
+            String trimmed = pattern.trim();
+
+            boolean isPrefix = trimmed.endsWith(WILDCARD_SUFFIX);
+            // Keep the trailing dot so "com.facebook.*" can't match "com.facebookfake"
+            String key = isPrefix ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+            if (key.isEmpty() || key.equals(".")) continue;
+
+            BuildNode node = root;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                BuildNode child = node.children.get(c);
+                if (child == null) {
+                    child = new BuildNode();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            if (isPrefix) {
+                node.prefix = true;
+            } else {
+                node.exact = true;
+            }
+            patternCount++;
+        }
+
+        // Flatten breadth-first so every node's edges sit next to each other
+        List<BuildNode> order = new ArrayList<>();
+        ArrayDeque<BuildNode> queue = new ArrayDeque<>();
+        root.index = 0;
+        order.add(root);
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            BuildNode node = queue.poll();
+            for (BuildNode child : node.children.values()) {
+                child.index = order.size();
+                order.add(child);
+                queue.add(child);
+            }
+        }
+
+        int nodeCount = order.size();
+        int[] edgeStart = new int[nodeCount + 1];
+        char[] edgeChars = new char[nodeCount - 1];
+        int[] edgeTargets = new int[nodeCount - 1];
+        boolean[] exact = new boolean[nodeCount];
+        boolean[] prefix = new boolean[nodeCount];
+
+        int edge = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            BuildNode node = order.get(n);
+            edgeStart[n] = edge;
+            exact[n] = node.exact;
+            prefix[n] = node.prefix;
+            for (Map.Entry<Character, BuildNode> entry : node.children.entrySet()) {
+                edgeChars[edge] = entry.getKey();
+                edgeTargets[edge] = entry.getValue().index;
+                edge++;
+            }
+        }
+        edgeStart[nodeCount] = edge;
+
+        return new PackageMatcher(edgeStart, edgeChars, edgeTargets, exact, prefix, patternCount);
+    }
+
+    public boolean matches(CharSequence packageName) {
+        if (packageName == null) return false;
+
+        int node = 0;
+        int length = packageName.length();
+        for (int i = 0; i < length; i++) {
+            if (mPrefix[node]) {
+                return true;
+            }
+            node = child(node, packageName.charAt(i));
+            if (node < 0) {
+                return false;
+            }
+        }
+        return mExact[node];
+    }
+
+    public boolean isEmpty() {
+        return mPatternCount == 0;
+    }
+
+    public int size() {
+        return mPatternCount;
+    }
+
+    private int child(int node, char c) {
+        int low = mEdgeStart[node];
+        int high = mEdgeStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = mEdgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return mEdgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    private static final class BuildNode {
+        final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        boolean exact;
+        boolean prefix;
+        int index;
+    }
+}
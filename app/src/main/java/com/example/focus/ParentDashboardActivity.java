@@ -6,6 +6,7 @@ import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
@@ -20,6 +21,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.activity.OnBackPressedCallback;
@@ -27,22 +29,15 @@ import androidx.activity.OnBackPressedCallback;
 import com.google.android.material.navigation.NavigationView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.messaging.FirebaseMessaging;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
@@ -72,19 +67,18 @@ public class ParentDashboardActivity extends AppCompatActivity implements Naviga
     private TextView mNotificationBadge;
 
     // Data
-    private List<DocumentSnapshot> mLinkedChildren = new ArrayList<>();
+    private ChildRoster mRoster;
     private ArrayAdapter<String> mChildSpinnerAdapter;
     private List<String> mChildNames = new ArrayList<>();
-    private Map<String, String> mChildNameMap = new HashMap<>(); // Map<Name, UserID>
+    private List<String> mChildIds = new ArrayList<>(); // parallel to mChildNames, null for the prompt
     private String mSelectedChildId = null;
 
     private RecentActivityAdapter mRecentActivityAdapter;
     private List<RecentActivityAdapter.Session> mSessionList = new ArrayList<>();
 
     // --- UPDATED: Listeners for real-time updates ---
-    private ListenerRegistration mUserDocListener;
-    private ListenerRegistration mSessionListener;
-    private ListenerRegistration mNotificationListener; // <-- This is now real-time
+    private ChildStatsPool mChildStats; // every child's stats, cached across switches
+    private long mUnreadNotifications; // from the live counter, shown once the badge exists
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -100,6 +94,7 @@ public class ParentDashboardActivity extends AppCompatActivity implements Naviga
             return;
         }
         mParentId = mCurrentUser.getUid();
+        mChildStats = new ChildStatsPool(mStore, this, this::onChildStatsChanged);
 
         // --- UI Initialization ---
         mSpinnerSelectChild = findViewById(R.id.spinnerSelectChild);
@@ -124,18 +119,30 @@ public class ParentDashboardActivity extends AppCompatActivity implements Naviga
 
         // --- Setup Child Selector Spinner ---
         mChildNames.add("Select a child...");
+        mChildIds.add(null);
 
-        mChildSpinnerAdapter = new ArrayAdapter<>(this, R.layout.spinner_item_light_text, mChildNames);
+        // The dropdown doubles as an overview: each child's total focus time, kept live by mChildStats
+        mChildSpinnerAdapter = new ArrayAdapter<String>(this, R.layout.spinner_item_light_text, mChildNames) {
+            @Override
+            public View getDropDownView(int position, View convertView, @NonNull ViewGroup parent) {
+                TextView view = (TextView) super.getDropDownView(position, convertView, parent);
+                String childId = mChildIds.get(position);
+                ChildStatsPool.Summary summary = childId != null ? mChildStats.getSummary(childId) : null;
+                if (summary != null) {
+                    view.setText(String.format(Locale.US, "%s  ·  %.1fh", mChildNames.get(position), summary.totalHours));
+                }
+                return view;
+            }
+        };
         mChildSpinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         mSpinnerSelectChild.setAdapter(mChildSpinnerAdapter);
         mSpinnerSelectChild.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 if (position > 0) {
-                    String selectedName = mChildNames.get(position);
-                    mSelectedChildId = mChildNameMap.get(selectedName);
+                    mSelectedChildId = mChildIds.get(position);
                     if (mSelectedChildId != null) {
-                        loadChildStats(mSelectedChildId);
+                        showChildStats(mSelectedChildId);
                         mButtonParentalSettings.setEnabled(true);
                     }
                 } else {
@@ -173,11 +180,16 @@ public class ParentDashboardActivity extends AppCompatActivity implements Naviga
             startActivity(new Intent(ParentDashboardActivity.this, LinkAccountActivity.class));
         });
 
+        // Shows the saved roster at once, then follows the parent doc
+        mRoster = ChildRoster.get(this, mParentId);
+        mRoster.addListener(this, this::onRosterChanged);
+        onRosterChanged(mRoster.getChildren());
+
         loadParentDataForNavHeader();
         getAndSaveFCMToken();
 
-        // --- CHANGED: Now called in onResume to ensure it's always active ---
-        // listenForNewNotifications();
+        // Attached once here; ListenerRegistry detaches it while the dashboard is stopped
+        listenForNewNotifications();
     }
 
     @Override
@@ -189,9 +201,7 @@ public class ParentDashboardActivity extends AppCompatActivity implements Naviga
         mNotificationBadge = actionView.findViewById(R.id.notification_badge);
 
         actionView.setOnClickListener(v -> onOptionsItemSelected(menuItem));
-
-        // --- MOVED: Start listening *after* the badge is inflated ---
-        listenForNewNotifications();
+        updateNotificationBadge();
 
         return true;
     }
@@ -201,255 +211,165 @@ public class ParentDashboardActivity extends AppCompatActivity implements Naviga
         if (item.getItemId() == R.id.action_notifications) {
             Log.d(TAG, "Notification icon clicked.");
             Intent intent = new Intent(this, NotificationActivity.class);
+            intent.putExtra(NotificationActivity.EXTRA_UNREAD_SEEN, mUnreadNotifications);
             startActivity(intent);
             return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        fetchLinkedChildren();
+    private void onRosterChanged(List<ChildRoster.Child> children) {
+        mChildNames.clear();
+        mChildIds.clear();
+        mChildNames.add("Select a child...");
+        mChildIds.add(null);
 
-        if (mSelectedChildId != null) {
-            loadChildStats(mSelectedChildId);
+        List<String> childIds = new ArrayList<>();
+        for (ChildRoster.Child child : children) {
+            mChildNames.add(child.name != null ? child.name : "Loading...");
+            mChildIds.add(child.id);
+            childIds.add(child.id);
         }
+        if (childIds.isEmpty()) Log.d(TAG, "No linked children found.");
+        mChildStats.setChildren(childIds);
+        mChildSpinnerAdapter.notifyDataSetChanged();
 
-        // --- ADDED: Re-attach notification listener ---
-        if (mNotificationListener == null) {
-            listenForNewNotifications();
-        }
+        // Keep the selection on the same child; the spinner only tracks positions
+        int position = mSelectedChildId != null ? mChildIds.indexOf(mSelectedChildId) : 0;
+        mSpinnerSelectChild.setSelection(Math.max(position, 0));
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        // Detach listeners when app is paused
-        if (mSessionListener != null) {
-            mSessionListener.remove();
-            mSessionListener = null;
-        }
-        if (mUserDocListener != null) {
-            mUserDocListener.remove();
-            mUserDocListener = null;
-        }
-        if (mNotificationListener != null) {
-            mNotificationListener.remove();
-            mNotificationListener = null;
-        }
+    // Switching children only moves the session listener pool; whatever is cached shows at once
+    private void showChildStats(String childId) {
+        mChildStats.watchSessions(childId);
+        renderChildSummary(childId);
+        renderChildSessions(childId);
+        renderChildReport(childId);
     }
 
-    private void fetchLinkedChildren() {
-        // Clear current list
-        mChildNames.clear();
-        mChildNameMap.clear();
-        mLinkedChildren.clear();
-        mChildNames.add("Select a child...");
-
-        mStore.collection("users")
-                .whereEqualTo("linkedParentId", mParentId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (querySnapshot.isEmpty()) {
-                        Log.d(TAG, "No linked children found.");
-                        mChildSpinnerAdapter.notifyDataSetChanged();
-                        return;
-                    }
+    private void onChildStatsChanged(String childId) {
+        ChildStatsPool.Summary summary = mChildStats.getSummary(childId);
+        if (summary != null) mRoster.setName(childId, summary.name); // may call onRosterChanged
+        mChildSpinnerAdapter.notifyDataSetChanged();
+        if (!childId.equals(mSelectedChildId)) return;
+        renderChildSummary(childId);
+        renderChildSessions(childId);
+        renderChildReport(childId);
+    }
 
-                    for (DocumentSnapshot childDoc : querySnapshot.getDocuments()) {
-                        String childName = childDoc.getString("firstName") + " " + childDoc.getString("lastName");
-                        String childId = childDoc.getId();
+    private void renderChildSummary(String childId) {
+        ChildStatsPool.Summary summary = mChildStats.getSummary(childId);
+        if (summary == null) {
+            mCardChildStats.setVisibility(View.GONE); // not loaded yet
+            return;
+        }
 
-                        mChildNames.add(childName);
-                        mChildNameMap.put(childName, childId);
-                        mLinkedChildren.add(childDoc);
-                    }
-                    mChildSpinnerAdapter.notifyDataSetChanged();
-
-                    if(mSelectedChildId != null) {
-                        for(int i=0; i < mChildNames.size(); i++) {
-                            String name = mChildNames.get(i);
-                            if(name != null && mSelectedChildId.equals(mChildNameMap.get(name))) {
-                                mSpinnerSelectChild.setSelection(i);
-                                break;
-                            }
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Error getting linked children", e);
-                    Toast.makeText(this, "Failed to load children.", Toast.LENGTH_SHORT).show();
-                });
-    }
+        String grade = "Grade 12"; // Placeholder
+        String age = "Age 16"; // Placeholder
+        mTextChildName.setText(summary.name);
+        mTextChildGrade.setText(grade + " | " + age);
 
-    private void loadChildStats(String childId) {
-        // Detach previous listeners
-        if (mSessionListener != null) mSessionListener.remove();
-        if (mUserDocListener != null) mUserDocListener.remove();
+        mTextStatSessions.setText(String.format(Locale.US, "%d", summary.totalPomodoros));
+        mTextStatTotalFocus.setText(String.format(Locale.US, "%.1fh", summary.totalHours));
 
-        // 1. Load data from the Child's main document (Real-time)
-        mUserDocListener = mStore.collection("users").document(childId)
-                .addSnapshotListener((childDoc, error) -> {
-                    if (error != null) {
-                        Log.w(TAG, "Listen failed for childDoc.", error);
-                        return;
-                    }
-                    if (childDoc == null || !childDoc.exists()) {
-                        Toast.makeText(this, "Could not find child data.", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
+        mCardChildStats.setVisibility(View.VISIBLE);
+    }
 
-                    String name = childDoc.getString("firstName") + " " + childDoc.getString("lastName");
-                    String grade = "Grade 12"; // Placeholder
-                    String age = "Age 16"; // Placeholder
-                    mTextChildName.setText(name);
-                    mTextChildGrade.setText(grade + " | " + age);
+    private void renderChildSessions(String childId) {
+        SessionStatsTracker stats = mChildStats.getSessionStats(childId);
+        if (stats == null) {
+            updateRecentSessions(Collections.<SessionStatsTracker.Entry>emptyList());
+            mCardRecentActivity.setVisibility(View.GONE); // not loaded yet
+            return;
+        }
 
-                    Long totalPomos = childDoc.getLong("totalPomodoros");
-                    Double totalHours = childDoc.getDouble("totalHours");
+        updateRecentSessions(stats.getRecent(ChildStatsPool.RECENT_SESSION_COUNT));
+        if (stats.size() == 0) {
+            mCardRecentActivity.setVisibility(View.GONE);
+            return;
+        }
 
-                    mTextStatSessions.setText(String.format(Locale.US, "%d", (totalPomos != null ? totalPomos : 0)));
-                    mTextStatTotalFocus.setText(String.format(Locale.US, "%.1fh", (totalHours != null ? totalHours : 0.0)));
+        mTextStatAvgDaily.setText("2.5h\nAvg. Daily focus");
+        mTextStatPerformance.setText("A+\nPerformance");
 
-                    mCardChildStats.setVisibility(View.VISIBLE);
-                    loadChildSessions(childId); // Re-attach session listener
-                });
+        mCardRecentActivity.setVisibility(View.VISIBLE);
     }
 
-    private void loadChildSessions(String childId) {
-        // Detach old session listener if it exists
-        if (mSessionListener != null) mSessionListener.remove();
+    // The same report the child's own dashboard and progress report read, cached per child
+    private void renderChildReport(String childId) {
+        StatsEngine.get().load(childId, report -> {
+            if (report == null || isFinishing() || !childId.equals(mSelectedChildId)) return;
 
-        Calendar cal = Calendar.getInstance();
-        cal.setFirstDayOfWeek(Calendar.MONDAY);
-        cal.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-        getStartOfDay(cal);
-        long startOfWeekMillis = cal.getTimeInMillis();
+            double weeklyHours = report.week.totalMinutes / 60.0;
+            mTextStatWeeklyStudy.setText(String.format(Locale.US, "%.1fh (This week)", weeklyHours));
+            mTextStatStreak.setText(String.format(Locale.US, "%d Days\nCurrent Streak", report.all.dayStreak));
+        });
+    }
 
-        Query query = mStore.collection("users").document(childId).collection("sessions")
-                .orderBy("timestamp", Query.Direction.DESCENDING);
+    // Swaps in the newest sessions and tells the adapter exactly which rows moved
+    private void updateRecentSessions(List<SessionStatsTracker.Entry> recent) {
+        List<RecentActivityAdapter.Session> oldList = new ArrayList<>(mSessionList);
+        List<RecentActivityAdapter.Session> newList = new ArrayList<>(recent.size());
+        for (SessionStatsTracker.Entry entry : recent) {
+            newList.add(new RecentActivityAdapter.Session(entry.id, entry.timestamp, entry.durationMinutes));
+        }
 
-        mSessionListener = query.addSnapshotListener((querySnapshot, error) -> {
-            if (error != null) {
-                Log.w(TAG, "Listen failed for sessions.", error);
-                return;
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
             }
 
-            if (querySnapshot == null || querySnapshot.isEmpty()) {
-                mSessionList.clear();
-                mRecentActivityAdapter.notifyDataSetChanged();
-                mCardRecentActivity.setVisibility(View.GONE);
-                return;
+            @Override
+            public int getNewListSize() {
+                return newList.size();
             }
 
-            mSessionList.clear();
-            double weeklyMinutes = 0;
-            HashSet<Long> uniqueDays = new HashSet<>();
-
-            for (DocumentSnapshot sessionDoc : querySnapshot.getDocuments()) {
-                Long timestamp = sessionDoc.getLong("timestamp");
-                Long duration = sessionDoc.getLong("durationMinutes");
-
-                if(timestamp == null || duration == null) continue;
-
-                if (mSessionList.size() < 5) {
-                    mSessionList.add(new RecentActivityAdapter.Session(timestamp, duration));
-                }
-                if (timestamp >= startOfWeekMillis) {
-                    weeklyMinutes += duration;
-                }
-                Calendar sessionCal = Calendar.getInstance();
-                sessionCal.setTimeInMillis(timestamp);
-                uniqueDays.add(getStartOfDay(sessionCal).getTimeInMillis());
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldList.get(oldPosition).id.equals(newList.get(newPosition).id);
             }
 
-            double weeklyHours = weeklyMinutes / 60.0;
-            mTextStatWeeklyStudy.setText(String.format(Locale.US, "%.1fh (This week)", weeklyHours));
-
-            int dayStreak = calculateDayStreak(uniqueDays);
-            mTextStatStreak.setText(String.format(Locale.US, "%d Days\nCurrent Streak", dayStreak));
-
-            mTextStatAvgDaily.setText("2.5h\nAvg. Daily focus");
-            mTextStatPerformance.setText("A+\nPerformance");
-
-            mRecentActivityAdapter.notifyDataSetChanged();
-            mCardRecentActivity.setVisibility(View.VISIBLE);
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                RecentActivityAdapter.Session before = oldList.get(oldPosition);
+                RecentActivityAdapter.Session after = newList.get(newPosition);
+                return before.timestamp == after.timestamp && before.durationMinutes == after.durationMinutes;
+            }
         });
+        mSessionList.clear();
+        mSessionList.addAll(newList);
+        diff.dispatchUpdatesTo(mRecentActivityAdapter);
     }
 
     // --- THIS IS THE FIX ---
-    // This method now uses a real-time listener
+    // This method now uses a real-time listener.
+    // The badge listens to the parent's unread counter, a single small document.
     private void listenForNewNotifications() {
-        if (mNotificationListener != null) {
-            mNotificationListener.remove();
-        }
-
-        mNotificationListener = mStore.collection("notifications")
-                .whereEqualTo("parentId", mParentId)
-                .whereEqualTo("read", false) // Only count unread
-                .addSnapshotListener((querySnapshot, error) -> {
-                    if (error != null) {
-                        Log.w(TAG, "Error listening for new notifications.", error);
-                        return;
-                    }
-
-                    if (mNotificationBadge == null) {
-                        Log.d(TAG, "Badge is null, can't update. View not inflated yet.");
-                        return; // Badge hasn't been created yet
-                    }
-
-                    if (querySnapshot != null && !querySnapshot.isEmpty()) {
-                        Log.d(TAG, "You have " + querySnapshot.size() + " unread notifications.");
-                        mNotificationBadge.setVisibility(View.VISIBLE);
-                    } else {
-                        Log.d(TAG, "No unread notifications.");
-                        mNotificationBadge.setVisibility(View.GONE);
-                    }
-                });
+        ListenerRegistry.get().listen(this, NotificationOutbox.unreadCounter(mStore, mParentId), (counterDoc, restart) -> {
+            Long unread = counterDoc.getLong(NotificationOutbox.FIELD_UNREAD);
+            mUnreadNotifications = UnreadCounter.displayed(unread);
+            updateNotificationBadge();
+        });
     }
-    // --- END OF FIX ---
 
-    // --- Helper Functions ---
+    private void updateNotificationBadge() {
+        if (mNotificationBadge == null) return; // Badge hasn't been created yet, onCreateOptionsMenu calls this again
 
-    private Calendar getStartOfDay(Calendar cal) {
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        return cal;
-    }
-
-    private int calculateDayStreak(HashSet<Long> uniqueDays) {
-        if (uniqueDays.isEmpty()) return 0;
-        int currentStreak = 0;
-        Calendar today = getStartOfDay(Calendar.getInstance());
-        long todayMillis = today.getTimeInMillis();
-        if (uniqueDays.contains(todayMillis)) {
-            currentStreak = 1;
-            Calendar yesterday = getStartOfDay(Calendar.getInstance());
-            yesterday.add(Calendar.DAY_OF_YEAR, -1);
-            while (uniqueDays.contains(yesterday.getTimeInMillis())) {
-                currentStreak++;
-                yesterday.add(Calendar.DAY_OF_YEAR, -1);
-            }
+        if (mUnreadNotifications > 0) {
+            Log.d(TAG, "You have " + mUnreadNotifications + " unread notifications.");
+            mNotificationBadge.setText(mUnreadNotifications > 9 ? "9+" : String.valueOf(mUnreadNotifications));
+            mNotificationBadge.setVisibility(View.VISIBLE);
         } else {
-            Calendar yesterday = getStartOfDay(Calendar.getInstance());
-            yesterday.add(Calendar.DAY_OF_YEAR, -1);
-            long yesterdayMillis = yesterday.getTimeInMillis();
-            if (uniqueDays.contains(yesterdayMillis)) {
-                currentStreak = 1;
-                Calendar dayBefore = getStartOfDay(Calendar.getInstance());
-                dayBefore.add(Calendar.DAY_OF_YEAR, -2);
-                while (uniqueDays.contains(dayBefore.getTimeInMillis())) {
-                    currentStreak++;
-                    dayBefore.add(Calendar.DAY_OF_YEAR, -1);
-                }
-            }
+            Log.d(TAG, "No unread notifications.");
+            mNotificationBadge.setVisibility(View.GONE);
         }
-        return currentStreak;
     }
 
+    // --- END OF FIX ---
+
+    // --- Helper Functions ---
+
     private void setupNavigationDrawer() {
         mDrawerLayout = findViewById(R.id.drawer_layout);
         mToolbar = findViewById(R.id.toolbar);
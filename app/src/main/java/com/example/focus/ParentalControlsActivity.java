@@ -1,9 +1,6 @@
 package com.example.focus;
 
 import android.content.Intent;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -15,7 +12,6 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.OnBackPressedCallback;
-import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.SwitchCompat;
 import androidx.appcompat.widget.Toolbar;
@@ -30,6 +26,7 @@ import com.google.firebase.firestore.SetOptions;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -64,6 +61,10 @@ public class ParentalControlsActivity extends AppCompatActivity {
     private LockedAppAdapter mAdapter;
     private List<LockedAppAdapter.AppInfo> mAppList = new ArrayList<>();
     private Map<String, Boolean> mLockedAppMap = new HashMap<>();
+    private List<AppCatalog.App> mCatalogApps; // Apps installed on this phone, null until scanned
+    private List<AppCatalog.App> mChildApps; // Apps on the child's device, null until loaded
+    private boolean mShowPickerWhenLoaded;
+    private final AppCatalog.Callback mCatalogListener = this::onCatalogLoaded;
 
     private List<String> mSocialApps = Arrays.asList(
             "com.instagram.android", "com.zhiliaoapp.musically", "com.google.android.youtube",
@@ -146,6 +147,12 @@ public class ParentalControlsActivity extends AppCompatActivity {
         } else {
             // This is a normal visit, load child data
             fetchParentPinAndChildSettings();
+            // Scan the installed apps in the background meanwhile (instant after the first time),
+            // and follow apps being installed or removed while the screen is open
+            AppCatalog catalog = AppCatalog.get(this);
+            catalog.addListener(mCatalogListener);
+            catalog.load(mCatalogListener);
+            listenForChildInventory();
         }
 
         mRecyclerLockedApps.setLayoutManager(new LinearLayoutManager(this));
@@ -156,6 +163,12 @@ public class ParentalControlsActivity extends AppCompatActivity {
         mButtonAddMoreApps.setOnClickListener(v -> showAppListDialog());
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        AppCatalog.get(this).removeListener(mCatalogListener);
+    }
+
     private void fetchParentPinAndChildSettings() {
         // 1. Get the Parent's master PIN
         mStore.collection("users").document(mParentId).get()
@@ -201,94 +214,95 @@ public class ParentalControlsActivity extends AppCompatActivity {
                 });
     }
 
+    private void onCatalogLoaded(List<AppCatalog.App> apps) {
+        if (isFinishing() || isDestroyed()) return;
+        mCatalogApps = apps;
+        populateAppList();
+        if (mShowPickerWhenLoaded) {
+            mShowPickerWhenLoaded = false;
+            showAppListDialog();
+        }
+    }
+
+    // The apps the child's device uploaded (see AppInventorySync). Served from the Firestore
+    // cache first, then only changed documents come in.
+    private void listenForChildInventory() {
+        ListenerRegistry.get().listen(this, AppInventorySync.inventory(mStore, mSelectedChildId),
+                (querySnapshot, restart) -> {
+                    if (querySnapshot.isEmpty()) return; // not synced yet
+
+                    List<AppCatalog.App> apps = new ArrayList<>(querySnapshot.size());
+                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        String label = doc.getString(AppInventorySync.FIELD_LABEL);
+                        Long category = doc.getLong(AppInventorySync.FIELD_CATEGORY);
+                        apps.add(new AppCatalog.App(doc.getId(), label != null ? label : doc.getId(),
+                                category != null ? category.intValue() : -1,
+                                !Boolean.FALSE.equals(doc.getBoolean(AppInventorySync.FIELD_USER_INSTALLED)),
+                                null));
+                    }
+                    Collections.sort(apps, (a, b) -> a.label.compareToIgnoreCase(b.label));
+                    mChildApps = apps;
+                    populateAppList();
+                });
+    }
+
+    // The child's own apps once they are known, else the apps on this phone
+    private List<AppCatalog.App> availableApps() {
+        return mChildApps != null ? mChildApps : mCatalogApps;
+    }
+
+    // Runs before the app scan has finished too: locked apps then show their last known
+    // label, and the installed social apps are added once the scan is in
     private void populateAppList() {
         mAppList.clear();
-        PackageManager pm = getPackageManager();
-        List<ApplicationInfo> allApps = pm.getInstalledApplications(PackageManager.GET_ACTIVITIES | PackageManager.GET_META_DATA);
+        Map<String, AppCatalog.App> installed = new HashMap<>();
+        List<AppCatalog.App> available = availableApps();
+        if (available != null) {
+            for (AppCatalog.App app : available) {
+                installed.put(app.packageName, app);
+            }
+        }
 
         Set<String> processedPackages = new HashSet<>();
-        List<LockedAppAdapter.AppInfo> tempAppList = new ArrayList<>();
 
         // 1. Show default social apps that are installed
         for (String socialPackage : mSocialApps) {
-            try {
-                ApplicationInfo appInfo = pm.getApplicationInfo(socialPackage, 0);
-                String appName = pm.getApplicationLabel(appInfo).toString();
-                boolean isLocked = mLockedAppMap.containsKey(socialPackage) && mLockedAppMap.get(socialPackage) == Boolean.TRUE;
-
-                tempAppList.add(new LockedAppAdapter.AppInfo(appName, appInfo.packageName, pm.getApplicationIcon(appInfo), isLocked));
-                processedPackages.add(socialPackage);
-            } catch (PackageManager.NameNotFoundException ignored) {
-                // App not installed on parent's phone, skip
-            }
+            AppCatalog.App app = installed.get(socialPackage);
+            if (app == null) continue; // App not installed, skip
+
+            boolean isLocked = mLockedAppMap.containsKey(socialPackage) && mLockedAppMap.get(socialPackage) == Boolean.TRUE;
+            mAppList.add(new LockedAppAdapter.AppInfo(app.label, socialPackage, isLocked));
+            processedPackages.add(socialPackage);
         }
 
         // 2. Add any other apps that are in the map but were not in the default social list
+        AppCatalog catalog = AppCatalog.get(this);
         for (Map.Entry<String, Boolean> entry : mLockedAppMap.entrySet()) {
             String packageName = entry.getKey();
             if (entry.getValue() == Boolean.TRUE && !processedPackages.contains(packageName)) {
-                try {
-                    ApplicationInfo appInfo = pm.getApplicationInfo(packageName, 0);
-                    String appName = pm.getApplicationLabel(appInfo).toString();
-                    tempAppList.add(new LockedAppAdapter.AppInfo(appName, packageName, pm.getApplicationIcon(appInfo), true));
-                    processedPackages.add(packageName);
-                } catch (PackageManager.NameNotFoundException e) {
-                    mAppList.add(new LockedAppAdapter.AppInfo(packageName, packageName, getDrawable(android.R.drawable.sym_def_app_icon), true));
-                }
+                AppCatalog.App app = installed.get(packageName);
+                String appName = app != null ? app.label : catalog.getCachedLabel(packageName);
+                mAppList.add(new LockedAppAdapter.AppInfo(appName != null ? appName : packageName, packageName, true));
+                processedPackages.add(packageName);
             }
         }
 
-        mAppList.addAll(tempAppList);
         mAdapter.notifyDataSetChanged();
     }
 
     private void showAppListDialog() {
-        PackageManager pm = getPackageManager();
-        List<ApplicationInfo> installedApps = pm.getInstalledApplications(PackageManager.GET_ACTIVITIES | PackageManager.GET_META_DATA);
-
-        List<String> appNames = new ArrayList<>();
-        List<String> packageNames = new ArrayList<>();
-        List<Boolean> initialCheckedStates = new ArrayList<>();
-
-        for (ApplicationInfo appInfo : installedApps) {
-            if (((appInfo.flags & ApplicationInfo.FLAG_SYSTEM) == 0 || (appInfo.flags & ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) != 0)
-                    && !appInfo.packageName.equals(getPackageName())) {
-
-                try {
-                    if (pm.getLaunchIntentForPackage(appInfo.packageName) != null) {
-                        String appName = pm.getApplicationLabel(appInfo).toString();
-
-                        appNames.add(appName);
-                        packageNames.add(appInfo.packageName);
-                        initialCheckedStates.add(mLockedAppMap.containsKey(appInfo.packageName) && mLockedAppMap.get(appInfo.packageName) == Boolean.TRUE);
-                    }
-                } catch (Exception e) {
-                    Log.w(TAG, "Error processing app for dialog: " + appInfo.packageName, e);
-                }
-            }
-        }
-
-        final String[] items = appNames.toArray(new String[0]);
-        final boolean[] checkedItems = new boolean[initialCheckedStates.size()];
-        for(int i = 0; i < initialCheckedStates.size(); i++) {
-            checkedItems[i] = initialCheckedStates.get(i);
+        List<AppCatalog.App> available = availableApps();
+        if (available == null) {
+            Toast.makeText(this, "Loading apps...", Toast.LENGTH_SHORT).show();
+            mShowPickerWhenLoaded = true;
+            return;
         }
 
-        new AlertDialog.Builder(this, R.style.AlertDialogTheme)
-                .setTitle("Select Apps to Lock (" + items.length + " Found)")
-                .setMultiChoiceItems(items, checkedItems, (dialog, which, isChecked) -> {
-                    checkedItems[which] = isChecked;
-                })
-                .setPositiveButton("Done", (dialog, which) -> {
-                    for (int i = 0; i < items.length; i++) {
-                        String pkg = packageNames.get(i);
-                        mLockedAppMap.put(pkg, checkedItems[i]);
-                    }
-                    Toast.makeText(this, "List updated. Click 'Save Settings' to apply.", Toast.LENGTH_LONG).show();
-                    populateAppList();
-                })
-                .setNegativeButton("Cancel", null)
-                .show();
+        new AppPickerDialog(this, available, mLockedAppMap, selection -> {
+            mLockedAppMap.putAll(selection);
+            Toast.makeText(this, "List updated. Click 'Save Settings' to apply.", Toast.LENGTH_LONG).show();
+            populateAppList();
+        }).show();
     }
 
     // --- *** THIS IS THE FIX *** ---
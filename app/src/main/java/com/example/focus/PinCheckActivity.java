@@ -76,6 +76,12 @@ public class PinCheckActivity extends AppCompatActivity {
         // --- END OF NEW CODE ---
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        LockLatencyMetrics.onOverlayResumed(getIntent());
+    }
+
     private void checkPin() {
         String enteredPin = mEditTextPin.getText().toString();
         if (enteredPin.length() != 4) {
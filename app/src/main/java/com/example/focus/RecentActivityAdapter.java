@@ -20,11 +20,13 @@ public class RecentActivityAdapter extends RecyclerView.Adapter<RecentActivityAd
 
     // Simple data model for this adapter
     public static class Session {
+        public String id; // Firestore document id, used to diff list updates
         public long timestamp;
         public long durationMinutes;
         public String taskName; // Assuming you might add this later
 
-        public Session(long timestamp, long durationMinutes) {
+        public Session(String id, long timestamp, long durationMinutes) {
+            this.id = id;
             this.timestamp = timestamp;
             this.durationMinutes = durationMinutes;
             this.taskName = "Focus Session"; // Default task name
@@ -0,0 +1,98 @@
+package com.example.focus;
+
+// Session statistics shown on the stats screens, kept apart from StatsEngine so they run
+// (and can be benchmarked, see :benchmark) without Firestore or a device.
+// Callers hand in the already-parsed rollup fields as parallel primitive arrays.
+public final class SessionAggregator {
+
+    // Immutable result of one aggregation pass
+    public static final class Summary {
+        public final int totalSessions;
+        public final long totalMinutes;
+        public final int activeDays;
+        public final int dayStreak;
+
+        public Summary(int totalSessions, long totalMinutes, int activeDays, int dayStreak) {
+            this.totalSessions = totalSessions;
+            this.totalMinutes = totalMinutes;
+            this.activeDays = activeDays;
+            this.dayStreak = dayStreak;
+        }
+
+        public double getTotalHours() {
+            return totalMinutes / 60.0;
+        }
+
+        public double getAvgDailyHours() {
+            return activeDays == 0 ? 0.0 : getTotalHours() / activeDays;
+        }
+    }
+
+    // Everything the stats screens show for one user, from one pass over the rollups (see StatsEngine)
+    public static final class Report {
+        public final int today; // local epoch day the report was computed for
+        public final long todayMinutes;
+        public final Summary week;
+        public final Summary month;
+        public final Summary all;
+
+        public Report(int today, long todayMinutes, Summary week, Summary month, Summary all) {
+            this.today = today;
+            this.todayMinutes = todayMinutes;
+            this.week = week;
+            this.month = month;
+            this.all = all;
+        }
+    }
+
+    private SessionAggregator() {}
+
+    // Today, this week and this month from the daily rollups since the earlier of weekStartDay and
+    // monthStartDay, all time from the monthly rollups, in a single pass over each. The streak
+    // always runs over all active days, so it reads the same on every range.
+    public static Report aggregateReport(int[] dailyEpochDays, long[] dailyMinutes, long[] dailyCounts, int dailyCount,
+                                         long[] monthlyMinutes, long[] monthlyCounts, int monthlyCount,
+                                         int[] activeEpochDays, int activeDayCount,
+                                         int weekStartDay, int monthStartDay, long nowMillis) {
+        StreakEngine days = new StreakEngine();
+        for (int i = 0; i < activeDayCount; i++) {
+            days.addDay(activeEpochDays[i]);
+        }
+        int today = days.toEpochDay(nowMillis);
+        int streak = days.currentStreak(nowMillis);
+
+        long todayMinutes = 0;
+        long weekMinutes = 0, monthMinutes = 0;
+        long weekSessions = 0, monthSessions = 0;
+        int weekDays = 0, monthDays = 0;
+        for (int i = 0; i < dailyCount; i++) {
+            int day = dailyEpochDays[i];
+            long minutes = dailyMinutes[i];
+            long sessions = dailyCounts[i];
+            int active = sessions > 0 ? 1 : 0;
+            if (day == today) todayMinutes += minutes;
+            if (day >= weekStartDay) {
+                weekMinutes += minutes;
+                weekSessions += sessions;
+                weekDays += active;
+            }
+            if (day >= monthStartDay) {
+                monthMinutes += minutes;
+                monthSessions += sessions;
+                monthDays += active;
+            }
+        }
+
+        long allMinutes = 0;
+        long allSessions = 0;
+        for (int i = 0; i < monthlyCount; i++) {
+            allMinutes += monthlyMinutes[i];
+            allSessions += monthlyCounts[i];
+        }
+
+        return new Report(today, todayMinutes,
+                new Summary((int) weekSessions, weekMinutes, weekDays, streak),
+                new Summary((int) monthSessions, monthMinutes, monthDays, streak),
+                new Summary((int) allSessions, allMinutes, days.getActiveDays(), streak));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.focus;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Append-only, fsync'd log of finished focus sessions that have not reached Firestore yet.
+// One line per record:
+//   S <sessionId> <userId> <timestamp> <durationMinutes> <parentId> <studentName>
+//                                    a finished session; the parent is "-" when there is
+//                                    none to notify, the name is URL-encoded
+//   A <sessionId>                    the session is in Firestore
+// A session is pending until its ack is written. A torn last line (process killed mid-write)
+// is ignored and cut off before the next append. The file is compacted down to the pending
+// sessions once enough acks pile up.
+// Not thread-safe; SessionJournalFlusher drives it from a single thread.
+public final class SessionJournal {
+
+    public static final class Entry {
+        public final String sessionId;
+        public final String userId;
+        public final long timestamp;
+        public final long durationMinutes;
+        // Parent to tell about the finished session, or null
+        public final String parentId;
+        public final String studentName;
+
+        public Entry(String sessionId, String userId, long timestamp, long durationMinutes,
+                     String parentId, String studentName) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.timestamp = timestamp;
+            this.durationMinutes = durationMinutes;
+            this.parentId = parentId;
+            this.studentName = studentName;
+        }
+    }
+
+    private static final String TAG = "SessionJournal";
+
+    private static final int COMPACT_AFTER_ACKS = 64;
+    private static final String NO_PARENT = "-";
+
+    private final File mFile;
+    private int mAcksSinceCompaction;
+
+    public SessionJournal(File file) {
+        mFile = file;
+    }
+
+    public void append(Entry entry) throws IOException {
+        appendRecords(record(entry));
+    }
+
+    public void ack(Collection<String> sessionIds) throws IOException {
+        if (sessionIds.isEmpty()) return;
+        StringBuilder sb = new StringBuilder();
+        for (String sessionId : sessionIds) {
+            sb.append("A ").append(sessionId).append('\n');
+        }
+        appendRecords(sb.toString());
+
+        mAcksSinceCompaction += sessionIds.size();
+        if (mAcksSinceCompaction >= COMPACT_AFTER_ACKS) {
+            compact();
+        }
+    }
+
+    // Pending sessions in the order they were logged
+    public List<Entry> readPending() throws IOException {
+        Map<String, Entry> pending = new LinkedHashMap<>();
+        if (!mFile.exists()) return new ArrayList<>();
+
+        String contents = new String(readFully(mFile), StandardCharsets.UTF_8);
+        int start = 0;
+        int end;
+        // Only newline-terminated records count; anything after the last '\n' is torn
+        while ((end = contents.indexOf('\n', start)) >= 0) {
+            String[] parts = contents.substring(start, end).split(" ", -1);
+            start = end + 1;
+            if (parts.length == 7 && parts[0].equals("S")) {
+                try {
+                    boolean notify = !parts[5].equals(NO_PARENT);
+                    pending.put(parts[1], new Entry(parts[1], parts[2],
+                            Long.parseLong(parts[3]), Long.parseLong(parts[4]),
+                            notify ? parts[5] : null,
+                            notify ? URLDecoder.decode(parts[6], "UTF-8") : null));
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Skipping malformed session record", e);
+                }
+            } else if (parts.length == 2 && parts[0].equals("A")) {
+                pending.remove(parts[1]);
+            }
+        }
+        return new ArrayList<>(pending.values());
+    }
+
+    // Rewrites the file with only the pending sessions (or deletes it when there are none)
+    private void compact() throws IOException {
+        List<Entry> pending = readPending();
+        mAcksSinceCompaction = 0;
+        if (pending.isEmpty()) {
+            if (mFile.exists() && !mFile.delete()) {
+                throw new IOException("Could not delete " + mFile);
+            }
+            return;
+        }
+
+        File temp = new File(mFile.getPath() + ".tmp");
+        StringBuilder sb = new StringBuilder();
+        for (Entry entry : pending) {
+            sb.append(record(entry));
+        }
+        writeTo(temp, sb.toString(), false);
+        if (!temp.renameTo(mFile)) {
+            throw new IOException("Could not replace " + mFile);
+        }
+    }
+
+    private static String record(Entry entry) throws IOException {
+        boolean notify = entry.parentId != null;
+        return String.format(Locale.US, "S %s %s %d %d %s %s\n",
+                entry.sessionId, entry.userId, entry.timestamp, entry.durationMinutes,
+                notify ? entry.parentId : NO_PARENT,
+                notify ? URLEncoder.encode(entry.studentName != null ? entry.studentName : "", "UTF-8") : NO_PARENT);
+    }
+
+    private void appendRecords(String records) throws IOException {
+        dropTornRecord();
+        writeTo(mFile, records, true);
+    }
+
+    // Cuts off a record the process was killed in the middle of writing, so the next
+    // record does not get glued onto it
+    private void dropTornRecord() throws IOException {
+        if (!mFile.exists() || mFile.length() == 0) return;
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            long length = file.length();
+            long keep = length;
+            while (keep > 0) {
+                file.seek(keep - 1);
+                if (file.read() == '\n') break;
+                keep--;
+            }
+            if (keep < length) {
+                file.setLength(keep);
+                file.getFD().sync();
+            }
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    private static void writeTo(File file, String records, boolean append) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, append)) {
+            out.write(records.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync(); // the record must be on disk before we report it as logged
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.focus;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Drains the SessionJournal into Firestore. A finished session is journaled first (on disk,
+// fsync'd), then its session doc, the user totals, the rollups and the parent's "finished"
+// notification are written together in one batch, and the session is acked once the server
+// has confirmed it. A batch goes into the SDK's local write queue right away, so the session
+// shows in the student's own stats while offline; the SDK sends it on reconnect.
+// The session id is generated when it is journaled. A session still in flight is not written
+// again, and one whose doc is already in the local cache (written by a process that died
+// before its ack) is only acked, so neither a retry nor a replay counts a session twice.
+// The trade-off against a transaction: that check sees only this device's cache.
+// All journal and Firestore work runs on one background thread.
+public final class SessionJournalFlusher {
+
+    private static final String TAG = "SessionJournalFlusher";
+
+    private static final String JOURNAL_FILE = "session_journal.log";
+
+    // Sessions per batch: each costs up to four writes (session, notification, day, month),
+    // plus the user totals, the stats revision and the parent's unread counter
+    private static final int MAX_SESSIONS_PER_BATCH = 50;
+
+    private static final long FIRST_RETRY_DELAY_MS = 5_000;
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60_000;
+
+    private static SessionJournalFlusher sInstance;
+
+    private final SessionJournal mJournal;
+    private final FirebaseFirestore mStore = FirebaseFirestore.getInstance();
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    // Only touched on mExecutor
+    private long mRetryDelayMs = FIRST_RETRY_DELAY_MS;
+    private boolean mRetryScheduled;
+    private final Set<String> mInFlight = new HashSet<>(); // committed, not confirmed yet
+
+    private SessionJournalFlusher(Context context) {
+        mJournal = new SessionJournal(new File(context.getFilesDir(), JOURNAL_FILE));
+    }
+
+    public static synchronized SessionJournalFlusher get(Context context) {
+        if (sInstance == null) {
+            sInstance = new SessionJournalFlusher(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    // Records a finished session and tries to send it right away. Returns immediately.
+    // parentId may be null when there is no linked parent to notify.
+    public void log(String userId, long timestamp, long durationMinutes, String parentId, String studentName) {
+        SessionJournal.Entry entry = new SessionJournal.Entry(
+                UUID.randomUUID().toString(), userId, timestamp, durationMinutes, parentId, studentName);
+        mExecutor.execute(() -> {
+            try {
+                mJournal.append(entry);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not journal session " + entry.sessionId, e);
+                return;
+            }
+            drain();
+        });
+    }
+
+    // Sends whatever is still pending, e.g. sessions logged before the app was killed
+    public void flush() {
+        mExecutor.execute(this::drain);
+    }
+
+    // Builds the user's rollups from their session history if that has not happened yet. It
+    // runs on the flush thread, so no session batch lands between its read of the sessions and
+    // its overwrite of the rollups: a batch is either among the sessions it reads (pending local
+    // writes included) or queued after its writes, and increments them. Drains wait for it.
+    // Completes once the rollups are in the local cache, so stats read then include them.
+    public Task<Void> backfillRollups(String userId) {
+        if (SessionRollups.isUpToDate(userId)) return Tasks.forResult(null);
+
+        TaskCompletionSource<Void> result = new TaskCompletionSource<>();
+        mExecutor.execute(() -> {
+            try {
+                SessionRollups.backfillIfNeeded(mStore, userId);
+                result.setResult(null);
+            } catch (Exception e) {
+                result.setException(e);
+            }
+        });
+        return result.getTask();
+    }
+
+    // --- Internals (mExecutor) ---
+
+    private void drain() {
+        List<SessionJournal.Entry> pending;
+        try {
+            pending = mJournal.readPending();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read session journal", e);
+            return;
+        }
+        if (pending.isEmpty()) return;
+
+        Map<String, List<SessionJournal.Entry>> byUser = new LinkedHashMap<>();
+        for (SessionJournal.Entry entry : pending) {
+            List<SessionJournal.Entry> entries = byUser.get(entry.userId);
+            if (entries == null) {
+                entries = new ArrayList<>();
+                byUser.put(entry.userId, entries);
+            }
+            entries.add(entry);
+        }
+
+        // One user's failure (e.g. a rules denial) does not hold up everyone else's sessions
+        boolean failed = false;
+        for (Map.Entry<String, List<SessionJournal.Entry>> user : byUser.entrySet()) {
+            List<SessionJournal.Entry> entries = user.getValue();
+            try {
+                for (int from = 0; from < entries.size(); from += MAX_SESSIONS_PER_BATCH) {
+                    write(user.getKey(), entries.subList(from, Math.min(from + MAX_SESSIONS_PER_BATCH, entries.size())));
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Session flush failed for " + user.getKey(), e);
+                failed = true;
+            }
+        }
+        if (failed) {
+            // The journal still has everything not acked
+            Log.w(TAG, "Retrying failed session flushes in " + mRetryDelayMs + " ms");
+            scheduleRetry();
+        }
+    }
+
+    private void scheduleRetry() {
+        if (mRetryScheduled) return;
+        mRetryScheduled = true;
+        mExecutor.schedule(() -> {
+            mRetryScheduled = false;
+            drain();
+        }, mRetryDelayMs, TimeUnit.MILLISECONDS);
+        mRetryDelayMs = Math.min(mRetryDelayMs * 2, MAX_RETRY_DELAY_MS);
+    }
+
+    // Writes the sessions that are not in Firestore yet, plus their share of the user
+    // totals, rollups and "finished" notifications, in one batch. Only sessions that are
+    // written here are counted in the notification, so a retry cannot count one twice.
+    private void write(String userId, List<SessionJournal.Entry> entries) throws Exception {
+        DocumentReference userRef = mStore.collection("users").document(userId);
+        List<SessionJournal.Entry> missing = new ArrayList<>(entries.size());
+        List<String> alreadyWritten = new ArrayList<>();
+        for (SessionJournal.Entry entry : entries) {
+            if (mInFlight.contains(entry.sessionId)) continue;
+            if (isInLocalCache(userRef.collection("sessions").document(entry.sessionId))) {
+                alreadyWritten.add(entry.sessionId); // the SDK's write queue has it
+            } else {
+                missing.add(entry);
+            }
+        }
+        if (!alreadyWritten.isEmpty()) mJournal.ack(alreadyWritten);
+        if (missing.isEmpty()) return;
+
+        WriteBatch batch = mStore.batch();
+        long[] timestamps = new long[missing.size()];
+        long[] durations = new long[missing.size()];
+        long totalMinutes = 0;
+        List<String> ids = new ArrayList<>(missing.size());
+        Map<DocumentReference, SessionJournal.Entry> finished = new LinkedHashMap<>();
+        Map<DocumentReference, Long> finishedCounts = new HashMap<>();
+        for (int i = 0; i < missing.size(); i++) {
+            SessionJournal.Entry entry = missing.get(i);
+            Map<String, Object> session = new HashMap<>();
+            session.put("timestamp", entry.timestamp);
+            session.put("durationMinutes", entry.durationMinutes);
+            session.put("taskName", "Focus Session");
+            batch.set(userRef.collection("sessions").document(entry.sessionId), session);
+            if (entry.parentId != null) {
+                DocumentReference notification = NotificationOutbox.document(
+                        mStore, userId, NotificationOutbox.TYPE_FINISHED, entry.timestamp);
+                Long count = finishedCounts.get(notification);
+                finishedCounts.put(notification, count != null ? count + 1 : 1L);
+                finished.put(notification, entry); // the latest session names the parent and student
+            }
+
+            timestamps[i] = entry.timestamp;
+            durations[i] = entry.durationMinutes;
+            totalMinutes += entry.durationMinutes;
+            ids.add(entry.sessionId);
+        }
+
+        Map<String, Object> totals = new HashMap<>();
+        totals.put("totalPomodoros", FieldValue.increment(missing.size()));
+        totals.put("totalHours", FieldValue.increment(totalMinutes / 60.0));
+        batch.update(userRef, totals);
+
+        SessionRollups.addSessions(batch, mStore, userId, timestamps, durations, missing.size());
+
+        // Sessions finished close together share one coalesced notification
+        Map<String, Long> unreadByParent = new HashMap<>();
+        for (Map.Entry<DocumentReference, SessionJournal.Entry> notification : finished.entrySet()) {
+            SessionJournal.Entry entry = notification.getValue();
+            long count = finishedCounts.get(notification.getKey());
+            batch.set(notification.getKey(), NotificationOutbox.fields(entry.parentId, userId,
+                    entry.studentName, NotificationOutbox.TYPE_FINISHED, "finished a focus session!",
+                    count), SetOptions.merge());
+            Long unread = unreadByParent.get(entry.parentId);
+            unreadByParent.put(entry.parentId, (unread != null ? unread : 0) + count);
+        }
+        for (Map.Entry<String, Long> parent : unreadByParent.entrySet()) {
+            batch.set(NotificationOutbox.unreadCounter(mStore, parent.getKey()),
+                    NotificationOutbox.unreadIncrement(parent.getValue()), SetOptions.merge());
+        }
+
+        mInFlight.addAll(ids);
+        batch.commit().addOnCompleteListener(mExecutor, task -> {
+            mInFlight.removeAll(ids);
+            if (!task.isSuccessful()) {
+                // Rejected by the server; the SDK has rolled the local writes back
+                Log.w(TAG, "Session write rejected for " + userId + ", retrying in " + mRetryDelayMs + " ms",
+                        task.getException());
+                scheduleRetry();
+                return;
+            }
+            try {
+                mJournal.ack(ids);
+                mRetryDelayMs = FIRST_RETRY_DELAY_MS;
+                Log.d(TAG, "Flushed " + ids.size() + " session(s)");
+            } catch (IOException e) {
+                // Replayed next time and found in the local cache
+                Log.e(TAG, "Could not ack sessions", e);
+            }
+        });
+        // Already in the local cache, so stats read now include them
+        StatsEngine.get().invalidate(userId);
+    }
+
+    private static boolean isInLocalCache(DocumentReference document) throws InterruptedException {
+        try {
+            DocumentSnapshot snapshot = Tasks.await(document.get(Source.CACHE));
+            return snapshot.exists();
+        } catch (ExecutionException e) {
+            return false; // not cached at all
+        }
+    }
+}
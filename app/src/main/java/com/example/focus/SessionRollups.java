@@ -0,0 +1,238 @@
+package com.example.focus;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+
+// Pre-aggregated session totals, so report screens never scan users/{uid}/sessions:
+//   users/{uid}/daily/{yyyyMMdd}  -> epochDay, minutes, count
+//   users/{uid}/monthly/{yyyyMM}  -> month, minutes, count, activeDays (local epoch days)
+// Days are local to the device that logged the session, like the old Calendar-based stats.
+public final class SessionRollups {
+
+    private static final String TAG = "SessionRollups";
+
+    public static final String COLLECTION_DAILY = "daily";
+    public static final String COLLECTION_MONTHLY = "monthly";
+
+    public static final String FIELD_EPOCH_DAY = "epochDay";
+    public static final String FIELD_MONTH = "month";
+    public static final String FIELD_MINUTES = "minutes";
+    public static final String FIELD_COUNT = "count";
+    public static final String FIELD_ACTIVE_DAYS = "activeDays";
+
+    // Stored on the user doc once existing sessions have been rolled up
+    public static final String FIELD_ROLLUPS_VERSION = "rollupsVersion";
+    private static final long ROLLUPS_VERSION = 1;
+
+    // Also on the user doc: bumped in the same batch as every rollup change, so a screen that
+    // only watches the user doc knows when a cached report is out of date
+    public static final String FIELD_STATS_REVISION = "statsRevision";
+
+    private static final int MAX_BATCH_WRITES = 500;
+
+    // Users whose rollups are known to be current; checked once per process
+    private static final Set<String> sUpToDate = Collections.synchronizedSet(new HashSet<String>());
+
+    private SessionRollups() {}
+
+    public static CollectionReference daily(FirebaseFirestore store, String userId) {
+        return store.collection("users").document(userId).collection(COLLECTION_DAILY);
+    }
+
+    public static CollectionReference monthly(FirebaseFirestore store, String userId) {
+        return store.collection("users").document(userId).collection(COLLECTION_MONTHLY);
+    }
+
+    // Daily rollups from the given local epoch day (inclusive) up to today
+    public static Query dailySince(FirebaseFirestore store, String userId, int fromEpochDay) {
+        return daily(store, userId).whereGreaterThanOrEqualTo(FIELD_EPOCH_DAY, fromEpochDay);
+    }
+
+    // Whether the user doc says the rollups have been built from the full session history
+    public static boolean isBuilt(DocumentSnapshot userDoc) {
+        Long version = userDoc.getLong(FIELD_ROLLUPS_VERSION);
+        return version != null && version >= ROLLUPS_VERSION;
+    }
+
+    // Adds the increments for a group of newly logged sessions, and the stats revision bump, to a
+    // batch that already writes the sessions and the user totals. Sessions on the same day/month
+    // share one write.
+    public static void addSessions(WriteBatch batch, FirebaseFirestore store, String userId,
+                                   long[] timestamps, long[] durationMinutes, int count) {
+        batch.update(store.collection("users").document(userId), FIELD_STATS_REVISION, FieldValue.increment(1));
+
+        Map<String, Map<String, Object>> days = new TreeMap<>();
+        Map<String, Map<String, Object>> months = new TreeMap<>();
+        Map<String, TreeSet<Integer>> monthDays = new HashMap<>();
+        group(timestamps, durationMinutes, count, days, months, monthDays);
+
+        for (Map.Entry<String, Map<String, Object>> entry : days.entrySet()) {
+            Map<String, Object> day = entry.getValue();
+            day.put(FIELD_MINUTES, FieldValue.increment((Long) day.get(FIELD_MINUTES)));
+            day.put(FIELD_COUNT, FieldValue.increment((Long) day.get(FIELD_COUNT)));
+            batch.set(daily(store, userId).document(entry.getKey()), day, SetOptions.merge());
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : months.entrySet()) {
+            Map<String, Object> month = entry.getValue();
+            month.put(FIELD_MINUTES, FieldValue.increment((Long) month.get(FIELD_MINUTES)));
+            month.put(FIELD_COUNT, FieldValue.increment((Long) month.get(FIELD_COUNT)));
+            month.put(FIELD_ACTIVE_DAYS, FieldValue.arrayUnion(monthDays.get(entry.getKey()).toArray()));
+            batch.set(monthly(store, userId).document(entry.getKey()), month, SetOptions.merge());
+        }
+    }
+
+    public static boolean isUpToDate(String userId) {
+        return sUpToDate.contains(userId);
+    }
+
+    // Builds the rollups from the full session history the first time a user opens a
+    // stats screen after upgrading. The documents are overwritten, not incremented, so this
+    // must not interleave with a session batch: only SessionJournalFlusher calls it, on its
+    // thread (see SessionJournalFlusher.backfillRollups). Blocks until the sessions have been
+    // read and the rollups are in the local write queue; the version flag follows once the
+    // server has them. Once a user's rollups are known to be current it returns at once.
+    static void backfillIfNeeded(FirebaseFirestore store, String userId) throws ExecutionException, InterruptedException {
+        if (sUpToDate.contains(userId)) return;
+
+        DocumentReference userRef = store.collection("users").document(userId);
+        DocumentSnapshot userDoc = Tasks.await(userRef.get());
+        if (isBuilt(userDoc)) {
+            sUpToDate.add(userId);
+            return;
+        }
+
+        Log.d(TAG, "Backfilling session rollups for " + userId);
+        // Includes sessions still in the local write queue, whose increments these documents replace
+        List<DocumentSnapshot> sessions = Tasks.await(userRef.collection("sessions").get()).getDocuments();
+        List<Task<Void>> commits = writeRollups(store, userId, sessions);
+        StatsEngine.get().invalidate(userId); // anything cached was read from partial rollups
+        Tasks.whenAll(commits).addOnSuccessListener(aVoid -> userRef.update(FIELD_ROLLUPS_VERSION, ROLLUPS_VERSION,
+                        FIELD_STATS_REVISION, FieldValue.increment(1))
+                .addOnSuccessListener(done -> sUpToDate.add(userId))
+                .addOnFailureListener(e -> Log.w(TAG, "Could not mark rollups as built for " + userId, e)))
+                .addOnFailureListener(e -> Log.w(TAG, "Rollup backfill rejected for " + userId, e));
+    }
+
+    private static List<Task<Void>> writeRollups(FirebaseFirestore store, String userId, List<DocumentSnapshot> sessions) {
+        long[] timestamps = new long[sessions.size()];
+        long[] durations = new long[sessions.size()];
+        int count = 0;
+        for (DocumentSnapshot session : sessions) {
+            Long timestamp = session.getLong("timestamp");
+            Long duration = session.getLong("durationMinutes");
+            if (timestamp == null || duration == null) continue;
+
+            timestamps[count] = timestamp;
+            durations[count] = duration;
+            count++;
+        }
+
+        Map<String, Map<String, Object>> days = new TreeMap<>();
+        Map<String, Map<String, Object>> months = new TreeMap<>();
+        Map<String, TreeSet<Integer>> monthDays = new HashMap<>();
+        group(timestamps, durations, count, days, months, monthDays);
+
+        List<Task<Void>> commits = new ArrayList<>();
+        WriteBatch batch = store.batch();
+        int writes = 0;
+        for (Map.Entry<String, Map<String, Object>> entry : days.entrySet()) {
+            batch.set(daily(store, userId).document(entry.getKey()), entry.getValue());
+            if (++writes == MAX_BATCH_WRITES) {
+                commits.add(batch.commit());
+                batch = store.batch();
+                writes = 0;
+            }
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : months.entrySet()) {
+            Map<String, Object> month = entry.getValue();
+            month.put(FIELD_ACTIVE_DAYS, new ArrayList<>(monthDays.get(entry.getKey())));
+            batch.set(monthly(store, userId).document(entry.getKey()), month);
+            if (++writes == MAX_BATCH_WRITES) {
+                commits.add(batch.commit());
+                batch = store.batch();
+                writes = 0;
+            }
+        }
+        if (writes > 0) {
+            commits.add(batch.commit());
+        }
+        Log.d(TAG, "Backfill: " + days.size() + " daily and " + months.size() + " monthly rollups");
+        return commits;
+    }
+
+    // Sums sessions per daily and monthly rollup document, keyed by document id
+    private static void group(long[] timestamps, long[] durationMinutes, int count,
+                              Map<String, Map<String, Object>> days,
+                              Map<String, Map<String, Object>> months,
+                              Map<String, TreeSet<Integer>> monthDays) {
+        TimeZone timeZone = TimeZone.getDefault();
+        Calendar cal = Calendar.getInstance(timeZone);
+        for (int i = 0; i < count; i++) {
+            cal.setTimeInMillis(timestamps[i]);
+            int epochDay = StreakEngine.toEpochDay(timestamps[i], timeZone);
+
+            Map<String, Object> day = totals(days, dayKey(cal), durationMinutes[i]);
+            day.put(FIELD_EPOCH_DAY, epochDay);
+
+            String monthKey = monthKey(cal);
+            Map<String, Object> month = totals(months, monthKey, durationMinutes[i]);
+            month.put(FIELD_MONTH, monthNumber(cal));
+            TreeSet<Integer> activeDays = monthDays.get(monthKey);
+            if (activeDays == null) {
+                activeDays = new TreeSet<>();
+                monthDays.put(monthKey, activeDays);
+            }
+            activeDays.add(epochDay);
+        }
+    }
+
+    private static Map<String, Object> totals(Map<String, Map<String, Object>> byKey, String key, long duration) {
+        Map<String, Object> doc = byKey.get(key);
+        if (doc == null) {
+            doc = new HashMap<>();
+            doc.put(FIELD_MINUTES, 0L);
+            doc.put(FIELD_COUNT, 0L);
+            byKey.put(key, doc);
+        }
+        doc.put(FIELD_MINUTES, (Long) doc.get(FIELD_MINUTES) + duration);
+        doc.put(FIELD_COUNT, (Long) doc.get(FIELD_COUNT) + 1);
+        return doc;
+    }
+
+    private static String dayKey(Calendar cal) {
+        return String.format(Locale.US, "%04d%02d%02d",
+                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    private static String monthKey(Calendar cal) {
+        return String.format(Locale.US, "%04d%02d", cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
+    }
+
+    private static int monthNumber(Calendar cal) {
+        return cal.get(Calendar.YEAR) * 100 + cal.get(Calendar.MONTH) + 1;
+    }
+}
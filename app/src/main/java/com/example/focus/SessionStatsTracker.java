@@ -0,0 +1,64 @@
+package com.example.focus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// The recency order behind the parent dashboard's live recent-sessions listener. Each added,
+// modified or removed session document is applied in O(log n), so a new session does not
+// cost a re-sort. Weekly hours and streaks come from StatsEngine instead.
+public final class SessionStatsTracker {
+
+    public static final class Entry {
+        public final String id;
+        public final long timestamp;
+        public final long durationMinutes;
+
+        Entry(String id, long timestamp, long durationMinutes) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.durationMinutes = durationMinutes;
+        }
+    }
+
+    // Newest first; the id breaks ties between sessions logged in the same millisecond
+    private static final Comparator<Entry> NEWEST_FIRST = (a, b) -> {
+        if (a.timestamp != b.timestamp) return a.timestamp > b.timestamp ? -1 : 1;
+        return a.id.compareTo(b.id);
+    };
+
+    private final Map<String, Entry> mById = new HashMap<>();
+    private final TreeSet<Entry> mByRecency = new TreeSet<>(NEWEST_FIRST);
+
+    // Adds a session, or replaces it if a document with this id was seen before
+    public void put(String id, long timestamp, long durationMinutes) {
+        remove(id);
+        Entry entry = new Entry(id, timestamp, durationMinutes);
+        mById.put(id, entry);
+        mByRecency.add(entry);
+    }
+
+    public void remove(String id) {
+        Entry entry = mById.remove(id);
+        if (entry == null) return;
+        mByRecency.remove(entry);
+    }
+
+    public int size() {
+        return mById.size();
+    }
+
+    // The newest 'limit' sessions, newest first
+    public List<Entry> getRecent(int limit) {
+        List<Entry> recent = new ArrayList<>(Math.min(limit, mByRecency.size()));
+        Iterator<Entry> iterator = mByRecency.iterator();
+        while (recent.size() < limit && iterator.hasNext()) {
+            recent.add(iterator.next());
+        }
+        return recent;
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.focus;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Session stats for the student dashboard, the progress report and the parent dashboard, from
+// one place. A user's report (today, week, month, all time) is built from two rollup queries
+// and SessionAggregator.aggregateReport, then kept in memory until a session write for that
+// user invalidates it or the day changes: the report opened after the dashboard, or any range
+// toggle, costs no queries. Loads for the same user while one is in flight share it.
+// Parsing and aggregation run on a background thread, and a computation that an invalidation
+// has already superseded is skipped. Reports are immutable, so they are handed to the main
+// thread as they are. load() is main thread only; invalidate() may be called from any thread.
+// A user the parent dashboard knows to have no rollups yet (still on an older build) gets
+// the same report built from a scan of their sessions instead.
+public final class StatsEngine {
+
+    private static final String TAG = "StatsEngine";
+
+    public interface Callback {
+        // Null if the rollups could not be read
+        void onStats(SessionAggregator.Report report);
+    }
+
+    private static final class Entry {
+        SessionAggregator.Report report; // null until loaded, and after invalidation
+        List<Callback> waiting; // non-null while a load is in flight
+        long version; // bumped by invalidate(), so a load that started before is not cached
+        long revision = Long.MIN_VALUE; // last seen by invalidateIfChanged()
+        boolean fromSessions; // no rollups yet; see invalidateIfChanged()
+    }
+
+    private static StatsEngine sInstance;
+
+    private final FirebaseFirestore mStore = FirebaseFirestore.getInstance();
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    private StatsEngine() {}
+
+    public static synchronized StatsEngine get() {
+        if (sInstance == null) {
+            sInstance = new StatsEngine();
+        }
+        return sInstance;
+    }
+
+    // Calls back right away if a report for today is cached, otherwise once it has been read
+    public void load(String userId, Callback callback) {
+        SessionAggregator.Report cached;
+        long version;
+        synchronized (this) {
+            Entry entry = mEntries.get(userId);
+            if (entry == null) {
+                entry = new Entry();
+                mEntries.put(userId, entry);
+            }
+            cached = entry.report;
+            if (cached != null && cached.today != StreakEngine.toEpochDay(System.currentTimeMillis(), TimeZone.getDefault())) {
+                cached = entry.report = null; // yesterday's "today"
+            }
+            if (cached == null) {
+                if (entry.waiting != null) {
+                    entry.waiting.add(callback);
+                    return;
+                }
+                entry.waiting = new ArrayList<>();
+                entry.waiting.add(callback);
+            }
+            version = entry.version;
+        }
+        if (cached != null) {
+            callback.onStats(cached);
+        } else {
+            fetch(userId, version);
+        }
+    }
+
+    // After anything that changes the user's rollups
+    public synchronized void invalidate(String userId) {
+        Entry entry = mEntries.get(userId);
+        if (entry == null) return;
+        entry.report = null;
+        entry.version++;
+    }
+
+    // For screens that only see the user doc (the parent's): drops the cached report once the
+    // doc's revision moves on. 'revision' is SessionRollups.FIELD_STATS_REVISION, or the session
+    // total while the rollups are not built; reports are then built from the sessions.
+    public synchronized void invalidateIfChanged(String userId, long revision, boolean rollupsBuilt) {
+        Entry entry = mEntries.get(userId);
+        if (entry == null) {
+            entry = new Entry();
+            mEntries.put(userId, entry);
+        }
+        if (entry.revision == revision && entry.fromSessions == !rollupsBuilt) return;
+        entry.revision = revision;
+        entry.fromSessions = !rollupsBuilt;
+        invalidate(userId);
+    }
+
+    // --- Loading ---
+
+    private void fetch(String userId, long version) {
+        Calendar weekStart = startOfDay();
+        weekStart.setFirstDayOfWeek(Calendar.MONDAY);
+        weekStart.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+        Calendar monthStart = startOfDay();
+        monthStart.set(Calendar.DAY_OF_MONTH, 1);
+        TimeZone timeZone = weekStart.getTimeZone();
+        int weekStartDay = StreakEngine.toEpochDay(weekStart.getTimeInMillis(), timeZone);
+        int monthStartDay = StreakEngine.toEpochDay(monthStart.getTimeInMillis(), timeZone);
+
+        boolean fromSessions;
+        synchronized (this) {
+            fromSessions = mEntries.get(userId).fromSessions;
+        }
+        if (fromSessions) {
+            Task<QuerySnapshot> sessions = mStore.collection("users").document(userId).collection("sessions").get();
+            sessions.continueWith(mExecutor, done -> {
+                if (!sessions.isSuccessful()) throw sessions.getException();
+                if (isSuperseded(userId, version)) return null;
+                return aggregateSessions(sessions.getResult(), weekStartDay, monthStartDay);
+            }).addOnCompleteListener(task -> onFetched(userId, version, task));
+            return;
+        }
+
+        // At most 37 daily rollups (the week can start in the previous month) and one doc per month
+        Task<QuerySnapshot> daily = SessionRollups.dailySince(mStore, userId, Math.min(weekStartDay, monthStartDay)).get();
+        Task<QuerySnapshot> monthly = SessionRollups.monthly(mStore, userId).get();
+        Tasks.whenAllComplete(daily, monthly).continueWith(mExecutor, done -> {
+            if (!daily.isSuccessful()) throw daily.getException();
+            if (!monthly.isSuccessful()) throw monthly.getException();
+            if (isSuperseded(userId, version)) return null; // its result would be thrown away
+            return aggregate(daily.getResult(), monthly.getResult(), weekStartDay, monthStartDay);
+        }).addOnCompleteListener(task -> onFetched(userId, version, task));
+    }
+
+    private void onFetched(String userId, long version, Task<SessionAggregator.Report> task) {
+        SessionAggregator.Report report = task.isSuccessful() ? task.getResult() : null;
+        if (!task.isSuccessful()) {
+            Log.w(TAG, "Failed to load stats for " + userId, task.getException());
+        }
+
+        List<Callback> waiting;
+        long current;
+        synchronized (this) {
+            Entry entry = mEntries.get(userId);
+            current = entry.version;
+            if (task.isSuccessful() && current != version) {
+                // A session was written meanwhile; the callers wait for a read that includes it
+                waiting = null;
+            } else {
+                if (report != null) entry.report = report;
+                waiting = entry.waiting;
+                entry.waiting = null;
+            }
+        }
+        if (waiting == null) {
+            fetch(userId, current);
+            return;
+        }
+        for (Callback callback : waiting) {
+            callback.onStats(report);
+        }
+    }
+
+    private synchronized boolean isSuperseded(String userId, long version) {
+        return mEntries.get(userId).version != version;
+    }
+
+    // mExecutor only. Parses the rollups once into primitive arrays; the math lives in SessionAggregator
+    private static SessionAggregator.Report aggregate(QuerySnapshot dailyRollups, QuerySnapshot monthlyRollups,
+                                                      int weekStartDay, int monthStartDay) {
+        List<DocumentSnapshot> days = dailyRollups.getDocuments();
+        int[] epochDays = new int[days.size()];
+        long[] dayMinutes = new long[days.size()];
+        long[] dayCounts = new long[days.size()];
+        int dayCount = 0;
+        for (DocumentSnapshot day : days) {
+            Long epochDay = day.getLong(SessionRollups.FIELD_EPOCH_DAY);
+            Long minutes = day.getLong(SessionRollups.FIELD_MINUTES);
+            Long count = day.getLong(SessionRollups.FIELD_COUNT);
+            if (epochDay == null || minutes == null || count == null) continue;
+
+            epochDays[dayCount] = epochDay.intValue();
+            dayMinutes[dayCount] = minutes;
+            dayCounts[dayCount] = count;
+            dayCount++;
+        }
+
+        List<DocumentSnapshot> months = monthlyRollups.getDocuments();
+        long[] monthMinutes = new long[months.size()];
+        long[] monthCounts = new long[months.size()];
+        int[] activeDays = new int[31 * months.size()];
+        int monthCount = 0;
+        int activeDayCount = 0;
+        for (DocumentSnapshot month : months) {
+            Long minutes = month.getLong(SessionRollups.FIELD_MINUTES);
+            Long count = month.getLong(SessionRollups.FIELD_COUNT);
+            if (minutes == null || count == null) continue;
+
+            monthMinutes[monthCount] = minutes;
+            monthCounts[monthCount] = count;
+            monthCount++;
+
+            Object active = month.get(SessionRollups.FIELD_ACTIVE_DAYS);
+            if (active instanceof List) {
+                for (Object day : (List<?>) active) {
+                    if (day instanceof Number && activeDayCount < activeDays.length) {
+                        activeDays[activeDayCount++] = ((Number) day).intValue();
+                    }
+                }
+            }
+        }
+
+        return SessionAggregator.aggregateReport(epochDays, dayMinutes, dayCounts, dayCount,
+                monthMinutes, monthCounts, monthCount, activeDays, activeDayCount,
+                weekStartDay, monthStartDay, System.currentTimeMillis());
+    }
+
+    // mExecutor only. The same report from the raw sessions, for users without rollups: the
+    // sessions are summed per local day, and into a single all-time "month"
+    private static SessionAggregator.Report aggregateSessions(QuerySnapshot sessions, int weekStartDay, int monthStartDay) {
+        TimeZone timeZone = TimeZone.getDefault();
+        TreeMap<Integer, long[]> byDay = new TreeMap<>(); // epoch day -> {minutes, count}
+        long totalMinutes = 0;
+        long totalCount = 0;
+        for (DocumentSnapshot session : sessions.getDocuments()) {
+            Long timestamp = session.getLong("timestamp");
+            Long duration = session.getLong("durationMinutes");
+            if (timestamp == null || duration == null) continue;
+
+            int epochDay = StreakEngine.toEpochDay(timestamp, timeZone);
+            long[] day = byDay.get(epochDay);
+            if (day == null) {
+                day = new long[2];
+                byDay.put(epochDay, day);
+            }
+            day[0] += duration;
+            day[1]++;
+            totalMinutes += duration;
+            totalCount++;
+        }
+
+        int[] epochDays = new int[byDay.size()];
+        long[] dayMinutes = new long[byDay.size()];
+        long[] dayCounts = new long[byDay.size()];
+        int dayCount = 0;
+        for (Map.Entry<Integer, long[]> day : byDay.entrySet()) {
+            epochDays[dayCount] = day.getKey();
+            dayMinutes[dayCount] = day.getValue()[0];
+            dayCounts[dayCount] = day.getValue()[1];
+            dayCount++;
+        }
+
+        return SessionAggregator.aggregateReport(epochDays, dayMinutes, dayCounts, dayCount,
+                new long[]{totalMinutes}, new long[]{totalCount}, 1, epochDays, dayCount,
+                weekStartDay, monthStartDay, System.currentTimeMillis());
+    }
+
+    private static Calendar startOfDay() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.focus;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+
+// Day-level activity of one student, stored as a bitset of local epoch days
+// (bit set = at least one session that day). Replaces the Calendar + HashSet<Long>
+// streak walks: adding a session is a time zone offset lookup and a bit set, and the
+// streak queries run over whole 64-day words instead of one day at a time.
+// Not thread-safe; build it on the thread that reads it.
+public final class StreakEngine {
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final TimeZone mTimeZone;
+
+    // mWords[i] holds epoch days (mFirstWord + i) * 64 .. (mFirstWord + i) * 64 + 63, lowest day in bit 0
+    private long[] mWords = new long[0];
+    private int mFirstWord;
+    private int mActiveDays;
+
+    public StreakEngine() {
+        this(TimeZone.getDefault());
+    }
+
+    public StreakEngine(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    public int toEpochDay(long millis) {
+        return toEpochDay(millis, mTimeZone);
+    }
+
+    // Local calendar day of the given instant, counted from 1970-01-01
+    public static int toEpochDay(long millis, TimeZone timeZone) {
+        long local = millis + timeZone.getOffset(millis);
+        long day = local / DAY_MILLIS;
+        if (local % DAY_MILLIS < 0) day--; // floor for instants before 1970
+        return (int) day;
+    }
+
+    // Marks the day of the given session timestamp as active. Returns false if it already was.
+    public boolean addTimestamp(long millis) {
+        return addDay(toEpochDay(millis));
+    }
+
+    public boolean addDay(int epochDay) {
+        int word = wordIndex(epochDay);
+        ensureWord(word);
+        int i = word - mFirstWord;
+        long mask = 1L << epochDay; // shift distance is taken mod 64
+        if ((mWords[i] & mask) != 0) return false;
+        mWords[i] |= mask;
+        mActiveDays++;
+        return true;
+    }
+
+    // Clears a day again, e.g. when its last session was deleted. Returns false if it was not set.
+    public boolean removeDay(int epochDay) {
+        if (!isActive(epochDay)) return false;
+        mWords[wordIndex(epochDay) - mFirstWord] &= ~(1L << epochDay);
+        mActiveDays--;
+        return true;
+    }
+
+    public boolean isActive(int epochDay) {
+        int i = wordIndex(epochDay) - mFirstWord;
+        if (i < 0 || i >= mWords.length) return false;
+        return (mWords[i] & (1L << epochDay)) != 0;
+    }
+
+    public int getActiveDays() {
+        return mActiveDays;
+    }
+
+    // Consecutive active days ending today, or ending yesterday if nothing is logged yet today
+    public int currentStreak(long nowMillis) {
+        int today = toEpochDay(nowMillis);
+        int end = isActive(today) ? today : today - 1;
+        if (!isActive(end)) return 0;
+
+        int streak = 0;
+        int i = wordIndex(end) - mFirstWord;
+        int bit = end & 63;
+        while (i >= 0) {
+            // Move 'bit' to the top and count the run of ones walking down from it
+            long shifted = mWords[i] << (63 - bit);
+            int run = Long.numberOfLeadingZeros(~shifted);
+            streak += run;
+            if (run <= bit) break; // run stopped inside this word
+            i--;
+            bit = 63;
+        }
+        return streak;
+    }
+
+    public int longestStreak() {
+        int best = 0;
+        int carry = 0; // run of ones reaching the top of the previous word
+        for (long word : mWords) {
+            if (word == -1L) {
+                carry += 64;
+                continue;
+            }
+            best = Math.max(best, carry + Long.numberOfTrailingZeros(~word));
+            best = Math.max(best, longestRunInWord(word));
+            carry = Long.numberOfLeadingZeros(~word);
+        }
+        return Math.max(best, carry);
+    }
+
+    public void clear() {
+        Arrays.fill(mWords, 0);
+        mActiveDays = 0;
+    }
+
+    private static int longestRunInWord(long word) {
+        int run = 0;
+        while (word != 0) {
+            word &= word << 1;
+            run++;
+        }
+        return run;
+    }
+
+    private static int wordIndex(int epochDay) {
+        return epochDay >> 6; // arithmetic shift floors negative days too
+    }
+
+    private void ensureWord(int word) {
+        if (mWords.length == 0) {
+            mWords = new long[4];
+            mFirstWord = word;
+            return;
+        }
+        int last = mFirstWord + mWords.length - 1;
+        if (word >= mFirstWord && word <= last) return;
+
+        // Grow with slack on the side we ran out of; sessions usually arrive newest first
+        int length = mWords.length;
+        if (word < mFirstWord) {
+            int newLength = Math.max(length * 2, length + (mFirstWord - word));
+            long[] grown = new long[newLength];
+            System.arraycopy(mWords, 0, grown, newLength - length, length);
+            mFirstWord -= newLength - length;
+            mWords = grown;
+        } else {
+            int newLength = Math.max(length * 2, word - mFirstWord + 1);
+            mWords = Arrays.copyOf(mWords, newLength);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import android.app.admin.DevicePolicyManager;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.ActionBarDrawerToggle;
 import android.os.Handler;
@@ -38,18 +39,14 @@ import androidx.drawerlayout.widget.DrawerLayout;
 import com.google.android.material.navigation.NavigationView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 import com.google.firebase.messaging.FirebaseMessaging;
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 // --- ADDED: Import for real-time listener ---
-import com.google.firebase.firestore.ListenerRegistration;
 
 public class StudentDashboardActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener {
 
@@ -76,9 +73,6 @@ public class StudentDashboardActivity extends AppCompatActivity implements Navig
     private String mUserId;
     private String mParentId;
 
-    // --- ADDED: Listener Registration ---
-    private ListenerRegistration mUserListener;
-
     // UI Elements
     private TextView mWelcomeText, mTextTimer, mPomodoroCount, mHoursToday;
     private Button mStartButton, mProgressReportButton;
@@ -134,8 +128,25 @@ public class StudentDashboardActivity extends AppCompatActivity implements Navig
         editor.remove(PREF_REMAINING_FOCUS_TIME);
         editor.remove(PREF_LAST_FOCUS_DURATION);
         editor.apply();
+        FocusSessionCheckpoint.clear(this);
 
         getAndSaveFCMToken();
+        setupUserDataListener();
+
+        // Sessions journaled while offline or before the app was killed
+        SessionJournalFlusher.get(this).flush();
+
+        // Let the parent pick from the apps on this device; only changed apps are sent
+        AppInventorySync.get(this).sync(mUserId);
+
+        // Existing users: build the daily/monthly rollups once, then refresh today's hours from them
+        SessionJournalFlusher.get(this).backfillRollups(mUserId).addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                Log.w(TAG, "Rollup backfill failed.", task.getException());
+                return;
+            }
+            if (!isFinishing()) fetchDashboardStats();
+        });
     }
 
     @Override
@@ -143,27 +154,10 @@ public class StudentDashboardActivity extends AppCompatActivity implements Navig
         super.onResume();
         Log.d(TAG, "onResume called.");
 
-        // --- THIS IS THE FIX ---
-        // Start the real-time listener
-        setupUserDataListener();
-        // --- END OF FIX ---
-
         // Fetch stats (this doesn't need to be real-time)
         fetchDashboardStats();
     }
 
-    // --- ADDED: onPause to stop the listener ---
-    @Override
-    protected void onPause() {
-        super.onPause();
-        // Detach the listener to prevent memory leaks when the app is in the background
-        if (mUserListener != null) {
-            mUserListener.remove();
-            mUserListener = null;
-        }
-    }
-    // --- END ---
-
     private void setupNavigationDrawer() {
         mDrawerLayout = findViewById(R.id.drawer_layout);
         mToolbar = findViewById(R.id.toolbar);
@@ -175,6 +169,10 @@ public class StudentDashboardActivity extends AppCompatActivity implements Navig
         mNavigationView = findViewById(R.id.nav_view);
         mNavigationView.setNavigationItemSelectedListener(this);
 
+        // The blocking latency screen is only offered on debuggable builds
+        boolean isDebuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        mNavigationView.getMenu().findItem(R.id.nav_latency_metrics).setVisible(isDebuggable);
+
         ActionBarDrawerToggle toggle = new ActionBarDrawerToggle(this, mDrawerLayout, mToolbar,
                 R.string.navigation_drawer_open, R.string.navigation_drawer_close);
         mDrawerLayout.addDrawerListener(toggle);
@@ -209,6 +207,8 @@ public class StudentDashboardActivity extends AppCompatActivity implements Navig
             startActivity(new Intent(this, ProfileSettingsActivity.class));
         } else if (id == R.id.nav_link_account) {
             startActivity(new Intent(this, LinkAccountActivity.class));
+        } else if (id == R.id.nav_latency_metrics) {
+            startActivity(new Intent(this, LatencyDebugActivity.class));
         } else if (id == R.id.nav_logout) {
             mAuth.signOut();
             goToLogin();
@@ -292,23 +292,13 @@ public class StudentDashboardActivity extends AppCompatActivity implements Navig
 
     // --- THIS IS THE FIX ---
     // Renamed from fetchUserData to setupUserDataListener
+    // Attached once from onCreate; ListenerRegistry detaches it while the dashboard is stopped
     private void setupUserDataListener() {
-        // Detach any old listener
-        if (mUserListener != null) {
-            mUserListener.remove();
-        }
-
-        // Attach a new real-time listener to the student's document
-        mUserListener = mStore.collection("users").document(mUserId)
-                .addSnapshotListener((studentDoc, error) -> {
-                    if (error != null) {
-                        Log.w(TAG, "Listen failed.", error);
-                        return;
-                    }
-
+        ListenerRegistry.get().listen(this, mStore.collection("users").document(mUserId),
+                (studentDoc, restart) -> {
                     long defaultTime = 25 * 60 * 1000;
 
-                    if (studentDoc != null && studentDoc.exists()) {
+                    if (studentDoc.exists()) {
                         String firstName = studentDoc.getString("firstName");
                         String email = studentDoc.getString("email");
 
@@ -428,34 +418,12 @@ public class StudentDashboardActivity extends AppCompatActivity implements Navig
     }
 
     private void fetchDashboardStats() {
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        long startOfTodayMillis = cal.getTimeInMillis();
-
-        mStore.collection("users").document(mUserId).collection("sessions")
-                .whereGreaterThanOrEqualTo("timestamp", startOfTodayMillis)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    double totalMinutes = 0;
-                    if (!querySnapshot.isEmpty()) {
-                        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                            Long duration = doc.getLong("durationMinutes");
-                            if (duration != null) {
-                                totalMinutes += duration;
-                            }
-                        }
-                    }
-                    double totalHours = totalMinutes / 60.0;
-                    mHoursToday.setText(String.format(Locale.US, "%.1fh", totalHours));
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Failed to load session stats.", e);
-                    mHoursToday.setText("0.0h");
-                });
+        // Shared with the progress report, so opening it next costs no queries
+        StatsEngine.get().load(mUserId, report -> {
+            if (isFinishing()) return;
+            long todayMinutes = report != null ? report.todayMinutes : 0;
+            mHoursToday.setText(String.format(Locale.US, "%.1fh", todayMinutes / 60.0));
+        });
     }
 
     private void getAndSaveFCMToken() {
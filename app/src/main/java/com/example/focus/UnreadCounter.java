@@ -0,0 +1,20 @@
+package com.example.focus;
+
+// Arithmetic of the parent's unread counter (users/{parentId}/counters/notifications).
+// New events are added server-side with FieldValue.increment; reading the counter for the
+// badge and marking notifications as read happen here, clamped so that two devices marking
+// the same events as read, or a stale read, can never take it below zero.
+public final class UnreadCounter {
+
+    private UnreadCounter() {}
+
+    // What the badge shows for the stored value, null while the document does not exist
+    public static long displayed(Long stored) {
+        return stored == null ? 0 : Math.max(0, stored);
+    }
+
+    // The new stored value once the 'seen' events have been read; events counted since stay unread
+    public static long afterRead(Long stored, long seen) {
+        return Math.max(0, displayed(stored) - Math.max(0, seen));
+    }
+}
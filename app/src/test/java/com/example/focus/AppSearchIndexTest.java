@@ -0,0 +1,111 @@
+package com.example.focus;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AppSearchIndexTest {
+
+    // Results are indices into these, in list order within a tier
+    private static final String[] LABELS = {
+            "YouTube", "YouTube Music", "Facebook", "Messenger", "Music Player", "Tube Stream"
+    };
+    private static final String[] PACKAGES = {
+            "com.google.android.youtube", "com.google.android.apps.youtube.music", "com.facebook.katana",
+            "com.facebook.orca", "com.example.player", "com.stream.tube"
+    };
+
+    private final AppSearchIndex mIndex = new AppSearchIndex(LABELS, PACKAGES);
+
+    private static void assertResults(int[] actual, int... expected) {
+        assertNotNull(actual);
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+    }
+
+    @Test
+    public void emptyQueryReturnsEveryAppInListOrder() {
+        assertEquals(6, mIndex.size());
+        assertResults(mIndex.search(""), 0, 1, 2, 3, 4, 5);
+        assertResults(mIndex.search("   "), 0, 1, 2, 3, 4, 5);
+        assertResults(mIndex.search(null), 0, 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void labelStartRanksAboveLaterLabelWord() {
+        // "Music Player" starts with it, "YouTube Music" has it as its second word
+        assertResults(mIndex.search("music"), 4, 1);
+    }
+
+    @Test
+    public void labelWordRanksAbovePackageSegment() {
+        // Facebook by label; Messenger only through com.facebook.orca
+        assertResults(mIndex.search("facebook"), 2, 3);
+    }
+
+    @Test
+    public void packageSegmentMatches() {
+        assertResults(mIndex.search("katana"), 2);
+        assertResults(mIndex.search("orca"), 3);
+    }
+
+    @Test
+    public void substringRanksLast() {
+        // "Tube Stream" starts with it; the YouTubes only contain it
+        assertResults(mIndex.search("tube"), 5, 0, 1);
+    }
+
+    @Test
+    public void queryIsCaseInsensitiveAndTrimmed() {
+        assertResults(mIndex.search("  YOU "), 0, 1);
+    }
+
+    @Test
+    public void multiWordQueryMatchesAsSubstring() {
+        assertResults(mIndex.search("tube mu"), 1);
+        assertResults(mIndex.search("music pl"), 4);
+    }
+
+    @Test
+    public void substringInsidePackageName() {
+        assertResults(mIndex.search("gle.and"), 0, 1);
+    }
+
+    @Test
+    public void oneCharacterQueryRanksEveryTierInListOrder() {
+        // Label starts: Messenger, Music Player; label word: YouTube Music; the rest via "com"
+        assertResults(mIndex.search("m"), 3, 4, 1, 0, 2, 5);
+    }
+
+    @Test
+    public void twoCharacterQuery() {
+        assertResults(mIndex.search("fa"), 2, 3);
+        assertResults(mIndex.search("ub"), 0, 1, 5);
+    }
+
+    @Test
+    public void noMatchReturnsEmpty() {
+        assertResults(mIndex.search("zzq"));
+        assertResults(mIndex.search("qx"));
+        assertResults(mIndex.search("tubez"));
+    }
+
+    @Test
+    public void emptyIndex() {
+        AppSearchIndex index = new AppSearchIndex(new String[0], new String[0]);
+
+        assertResults(index.search(""));
+        assertResults(index.search("you"));
+    }
+
+    @Test
+    public void interruptedSearchReturnsNull() {
+        Thread.currentThread().interrupt();
+        try {
+            assertNull(mIndex.search("you"));
+        } finally {
+            Thread.interrupted(); // clear it for the next test
+        }
+    }
+}
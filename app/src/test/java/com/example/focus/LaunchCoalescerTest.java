@@ -0,0 +1,63 @@
+package com.example.focus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LaunchCoalescerTest {
+
+    private static final long WINDOW = 750;
+    private static final String BLOCKED = "com.instagram.android";
+
+    @Test
+    public void firstEventLaunches() {
+        assertTrue(new LaunchCoalescer(WINDOW).shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000));
+    }
+
+    @Test
+    public void repeatWithinWindowIsCoalesced() {
+        LaunchCoalescer coalescer = new LaunchCoalescer(WINDOW);
+
+        assertTrue(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000));
+        assertFalse(coalescer.shouldLaunch(new StringBuilder(BLOCKED), LockDecision.APP_BLOCK, 1_100));
+        assertFalse(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000 + WINDOW - 1));
+    }
+
+    @Test
+    public void repeatAfterWindowLaunches() {
+        LaunchCoalescer coalescer = new LaunchCoalescer(WINDOW);
+
+        assertTrue(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000));
+        assertTrue(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000 + WINDOW));
+    }
+
+    @Test
+    public void otherPackageOrDecisionLaunches() {
+        LaunchCoalescer coalescer = new LaunchCoalescer(WINDOW);
+
+        assertTrue(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000));
+        assertTrue(coalescer.shouldLaunch("com.facebook.katana", LockDecision.APP_BLOCK, 1_010));
+        assertTrue(coalescer.shouldLaunch("com.facebook.katana", LockDecision.FOCUS_RELAUNCH, 1_020));
+    }
+
+    @Test
+    public void zeroWindowNeverCoalesces() {
+        LaunchCoalescer coalescer = new LaunchCoalescer(0);
+
+        assertTrue(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000));
+        assertTrue(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000));
+    }
+
+    // Regression: AppLockService resets the coalescer when our own overlay comes to the front.
+    // Reopening the blocked app right after dismissing the overlay used to be taken for a
+    // repeat of the launch the overlay had already handled, and was let through.
+    @Test
+    public void reopeningAfterOverlayWithinWindowLaunchesAgain() {
+        LaunchCoalescer coalescer = new LaunchCoalescer(WINDOW);
+
+        assertTrue(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_000));
+        assertFalse(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_050)); // same launch, before the overlay
+        coalescer.reset(); // overlay is up
+        assertTrue(coalescer.shouldLaunch(BLOCKED, LockDecision.APP_BLOCK, 1_300));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.focus;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PackageMatcherTest {
+
+    private static PackageMatcher compile(String... patterns) {
+        return PackageMatcher.compile(Arrays.asList(patterns));
+    }
+
+    @Test
+    public void exactPatternMatchesOnlyThatPackage() {
+        PackageMatcher matcher = compile("com.instagram.android");
+
+        assertTrue(matcher.matches("com.instagram.android"));
+        assertFalse(matcher.matches("com.instagram"));
+        assertFalse(matcher.matches("com.instagram.android.lite"));
+        assertFalse(matcher.matches("com.instagram.androie"));
+    }
+
+    @Test
+    public void wildcardMatchesSubpackages() {
+        PackageMatcher matcher = compile("com.facebook.*");
+
+        assertTrue(matcher.matches("com.facebook.katana"));
+        assertTrue(matcher.matches("com.facebook.orca"));
+        assertTrue(matcher.matches("com.facebook.orca.beta"));
+    }
+
+    @Test
+    public void wildcardDoesNotMatchSiblingPrefixOrItsOwnRoot() {
+        PackageMatcher matcher = compile("com.facebook.*");
+
+        assertFalse(matcher.matches("com.facebookfake"));
+        assertFalse(matcher.matches("com.facebookfake.katana"));
+        assertFalse(matcher.matches("com.facebook"));
+        assertFalse(matcher.matches("com.face"));
+    }
+
+    @Test
+    public void exactAndWildcardOnOverlappingPrefixes() {
+        PackageMatcher matcher = compile("com.google", "com.google.android.youtube", "com.google.android.apps.*");
+
+        assertTrue(matcher.matches("com.google"));
+        assertTrue(matcher.matches("com.google.android.youtube"));
+        assertTrue(matcher.matches("com.google.android.apps.maps"));
+        assertFalse(matcher.matches("com.google.android"));
+        assertFalse(matcher.matches("com.google.android.youtube.music"));
+        assertFalse(matcher.matches("com.google.android.gm"));
+    }
+
+    @Test
+    public void wildcardCoversLongerExactPatternUnderIt() {
+        PackageMatcher matcher = compile("com.tiktok.*", "com.tiktok.lite");
+
+        assertTrue(matcher.matches("com.tiktok.lite"));
+        assertTrue(matcher.matches("com.tiktok.musically"));
+        assertEquals(2, matcher.size());
+    }
+
+    @Test
+    public void blankAndNullPatternsAreIgnoredAndOthersTrimmed() {
+        PackageMatcher matcher = compile("  com.snapchat.android ", "", null, ".*", "   ");
+
+        assertEquals(1, matcher.size());
+        assertTrue(matcher.matches("com.snapchat.android"));
+        assertFalse(matcher.matches("com.other"));
+    }
+
+    @Test
+    public void emptyMatcherMatchesNothing() {
+        assertTrue(PackageMatcher.EMPTY.isEmpty());
+        assertFalse(PackageMatcher.EMPTY.matches("com.instagram.android"));
+        assertFalse(PackageMatcher.EMPTY.matches(""));
+        assertTrue(PackageMatcher.compile(Collections.<String>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void nullPackageNameDoesNotMatch() {
+        assertFalse(compile("com.facebook.*").matches(null));
+    }
+
+    @Test
+    public void matchesAnyCharSequence() {
+        PackageMatcher matcher = compile("com.facebook.*", "org.example.app");
+
+        assertTrue(matcher.matches(new StringBuilder("com.facebook.katana")));
+        assertTrue(matcher.matches(new StringBuilder("org.example.app")));
+        assertFalse(matcher.matches(new StringBuilder("org.example")));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.focus;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SessionJournalTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static SessionJournal.Entry entry(String sessionId) {
+        return new SessionJournal.Entry(sessionId, "user1", 1_700_000_000_000L, 25, "parent1", "Ana María");
+    }
+
+    private static List<String> ids(List<SessionJournal.Entry> entries) {
+        List<String> ids = new ArrayList<>();
+        for (SessionJournal.Entry entry : entries) {
+            ids.add(entry.sessionId);
+        }
+        return ids;
+    }
+
+    private static void appendRaw(File file, String text) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void missingFileHasNothingPending() throws IOException {
+        SessionJournal journal = new SessionJournal(new File(mFolder.getRoot(), "journal.log"));
+
+        assertTrue(journal.readPending().isEmpty());
+    }
+
+    @Test
+    public void entriesRoundTripInLoggedOrder() throws IOException {
+        SessionJournal journal = new SessionJournal(mFolder.newFile("journal.log"));
+        journal.append(entry("s1"));
+        journal.append(new SessionJournal.Entry("s2", "user2", 42L, 50, null, null));
+
+        List<SessionJournal.Entry> pending = journal.readPending();
+        assertEquals(Arrays.asList("s1", "s2"), ids(pending));
+
+        SessionJournal.Entry first = pending.get(0);
+        assertEquals("user1", first.userId);
+        assertEquals(1_700_000_000_000L, first.timestamp);
+        assertEquals(25, first.durationMinutes);
+        assertEquals("parent1", first.parentId);
+        assertEquals("Ana María", first.studentName);
+
+        SessionJournal.Entry second = pending.get(1);
+        assertNull(second.parentId);
+        assertNull(second.studentName);
+    }
+
+    @Test
+    public void replayAfterAckOnlyReturnsUnackedSessions() throws IOException {
+        File file = mFolder.newFile("journal.log");
+        SessionJournal journal = new SessionJournal(file);
+        journal.append(entry("s1"));
+        journal.append(entry("s2"));
+        journal.append(entry("s3"));
+        journal.ack(Arrays.asList("s1", "s3"));
+
+        // A fresh instance, as after the process was killed
+        SessionJournal replayed = new SessionJournal(file);
+        assertEquals(Collections.singletonList("s2"), ids(replayed.readPending()));
+    }
+
+    @Test
+    public void tornLastRecordIsIgnored() throws IOException {
+        File file = mFolder.newFile("journal.log");
+        SessionJournal journal = new SessionJournal(file);
+        journal.append(entry("s1"));
+        appendRaw(file, "S s2 user1 17000"); // killed mid-write
+
+        assertEquals(Collections.singletonList("s1"), ids(new SessionJournal(file).readPending()));
+    }
+
+    @Test
+    public void tornAckDoesNotAckTheSession() throws IOException {
+        File file = mFolder.newFile("journal.log");
+        SessionJournal journal = new SessionJournal(file);
+        journal.append(entry("s1"));
+        appendRaw(file, "A s1");
+
+        assertEquals(Collections.singletonList("s1"), ids(new SessionJournal(file).readPending()));
+    }
+
+    @Test
+    public void nextAppendCutsOffTheTornRecord() throws IOException {
+        File file = mFolder.newFile("journal.log");
+        SessionJournal journal = new SessionJournal(file);
+        journal.append(entry("s1"));
+        appendRaw(file, "S s2 user1 17000");
+
+        SessionJournal replayed = new SessionJournal(file);
+        replayed.append(entry("s3"));
+
+        assertEquals(Arrays.asList("s1", "s3"), ids(replayed.readPending()));
+    }
+
+    @Test
+    public void compactionKeepsOnlyPendingSessions() throws IOException {
+        File file = mFolder.newFile("journal.log");
+        SessionJournal journal = new SessionJournal(file);
+        List<String> acked = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            journal.append(entry("s" + i));
+            if (i < 65) acked.add("s" + i);
+        }
+        long before = file.length();
+        journal.ack(acked);
+
+        assertTrue(file.length() < before);
+        assertEquals(Arrays.asList("s65", "s66", "s67", "s68", "s69"), ids(new SessionJournal(file).readPending()));
+    }
+
+    @Test
+    public void compactionDeletesTheFileOnceNothingIsPending() throws IOException {
+        File file = mFolder.newFile("journal.log");
+        SessionJournal journal = new SessionJournal(file);
+        List<String> acked = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            journal.append(entry("s" + i));
+            acked.add("s" + i);
+        }
+        journal.ack(acked);
+
+        assertFalse(file.exists());
+        assertTrue(journal.readPending().isEmpty());
+    }
+}
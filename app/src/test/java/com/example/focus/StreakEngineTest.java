@@ -0,0 +1,154 @@
+package com.example.focus;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class StreakEngineTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Midday UTC on the given epoch day
+    private static long noon(int epochDay) {
+        return epochDay * DAY_MILLIS + DAY_MILLIS / 2;
+    }
+
+    private static StreakEngine engineWith(int... epochDays) {
+        StreakEngine engine = new StreakEngine(UTC);
+        for (int day : epochDays) {
+            engine.addDay(day);
+        }
+        return engine;
+    }
+
+    @Test
+    public void emptyEngineHasNoStreak() {
+        StreakEngine engine = new StreakEngine(UTC);
+
+        assertEquals(0, engine.getActiveDays());
+        assertEquals(0, engine.currentStreak(noon(20000)));
+        assertEquals(0, engine.longestStreak());
+    }
+
+    @Test
+    public void gapEndsTheCurrentStreak() {
+        StreakEngine engine = engineWith(20000, 20001, 20003, 20004, 20005);
+
+        assertEquals(3, engine.currentStreak(noon(20005)));
+        assertEquals(3, engine.longestStreak());
+        assertEquals(5, engine.getActiveDays());
+    }
+
+    @Test
+    public void streakEndingYesterdayStillCounts() {
+        StreakEngine engine = engineWith(20003, 20004, 20005);
+
+        assertEquals(3, engine.currentStreak(noon(20006)));
+        assertEquals(0, engine.currentStreak(noon(20007)));
+    }
+
+    @Test
+    public void longestStreakFindsEarlierRun() {
+        StreakEngine engine = engineWith(19990, 19991, 19992, 19993, 20000, 20001);
+
+        assertEquals(4, engine.longestStreak());
+        assertEquals(2, engine.currentStreak(noon(20001)));
+    }
+
+    @Test
+    public void addingAnActiveDayAgainIsIgnored() {
+        StreakEngine engine = new StreakEngine(UTC);
+
+        assertTrue(engine.addTimestamp(noon(20000)));
+        assertFalse(engine.addTimestamp(noon(20000) + 60_000));
+        assertEquals(1, engine.getActiveDays());
+    }
+
+    @Test
+    public void removingADaySplitsTheStreak() {
+        StreakEngine engine = engineWith(20000, 20001, 20002, 20003);
+
+        assertTrue(engine.removeDay(20001));
+        assertFalse(engine.isActive(20001));
+        assertEquals(3, engine.getActiveDays());
+        assertEquals(2, engine.currentStreak(noon(20003)));
+        assertEquals(2, engine.longestStreak());
+    }
+
+    @Test
+    public void removingAnInactiveDayIsIgnored() {
+        StreakEngine engine = engineWith(20000);
+
+        assertFalse(engine.removeDay(20001));
+        assertFalse(engine.removeDay(5)); // outside the stored words
+        assertEquals(1, engine.getActiveDays());
+    }
+
+    @Test
+    public void streakRunsAcrossTheYearBoundary() {
+        Calendar cal = Calendar.getInstance(UTC);
+        cal.clear();
+        cal.set(2023, Calendar.DECEMBER, 30, 21, 0);
+        long dec30 = cal.getTimeInMillis();
+        cal.set(2023, Calendar.DECEMBER, 31, 23, 59);
+        long dec31 = cal.getTimeInMillis();
+        cal.set(2024, Calendar.JANUARY, 1, 0, 1);
+        long jan1 = cal.getTimeInMillis();
+
+        StreakEngine engine = new StreakEngine(UTC);
+        engine.addTimestamp(dec30);
+        engine.addTimestamp(dec31);
+        engine.addTimestamp(jan1);
+
+        assertEquals(engine.toEpochDay(dec31) + 1, engine.toEpochDay(jan1));
+        assertEquals(3, engine.currentStreak(jan1));
+        assertEquals(3, engine.longestStreak());
+    }
+
+    @Test
+    public void streakRunsAcrossBitsetWords() {
+        // Epoch days 60..130 span three 64-day words
+        StreakEngine engine = new StreakEngine(UTC);
+        for (int day = 130; day >= 60; day--) {
+            engine.addDay(day);
+        }
+
+        assertEquals(71, engine.currentStreak(noon(130)));
+        assertEquals(71, engine.longestStreak());
+    }
+
+    @Test
+    public void fullWordsCountTowardsTheLongestStreak() {
+        StreakEngine engine = new StreakEngine(UTC);
+        for (int day = 128; day < 128 + 200; day++) {
+            engine.addDay(day);
+        }
+        engine.addDay(400);
+
+        assertEquals(200, engine.longestStreak());
+        assertEquals(201, engine.getActiveDays());
+    }
+
+    @Test
+    public void daysAreLocalToTheTimeZone() {
+        long instant = noon(20000) + 11 * 60 * 60 * 1000L; // 23:00 UTC
+
+        assertEquals(20000, StreakEngine.toEpochDay(instant, UTC));
+        assertEquals(20001, StreakEngine.toEpochDay(instant, TimeZone.getTimeZone("GMT+02:00")));
+        assertEquals(-1, StreakEngine.toEpochDay(-1, UTC));
+    }
+
+    @Test
+    public void clearForgetsEveryDay() {
+        StreakEngine engine = engineWith(20000, 20001);
+        engine.clear();
+
+        assertEquals(0, engine.getActiveDays());
+        assertFalse(engine.isActive(20000));
+        assertEquals(0, engine.currentStreak(noon(20001)));
+    }
+}
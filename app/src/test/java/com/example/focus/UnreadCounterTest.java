@@ -0,0 +1,60 @@
+package com.example.focus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UnreadCounterTest {
+
+    @Test
+    public void displayed_missingDocumentIsZero() {
+        assertEquals(0, UnreadCounter.displayed(null));
+    }
+
+    @Test
+    public void displayed_neverNegative() {
+        assertEquals(0, UnreadCounter.displayed(-3L));
+        assertEquals(4, UnreadCounter.displayed(4L));
+    }
+
+    @Test
+    public void afterRead_keepsEventsCountedSinceTheBadgeWasShown() {
+        long stored = 3;
+        stored += 2; // two increments land while the list opens
+        assertEquals(2, UnreadCounter.afterRead(stored, 3));
+    }
+
+    @Test
+    public void afterRead_withoutSeenCountClearsEverything() {
+        assertEquals(0, UnreadCounter.afterRead(7L, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void afterRead_twoDevicesReadingTheSameEventsStopsAtZero() {
+        long first = UnreadCounter.afterRead(5L, 5);
+        long second = UnreadCounter.afterRead(first, 5);
+        assertEquals(0, first);
+        assertEquals(0, second);
+    }
+
+    @Test
+    public void afterRead_staleSeenCountStopsAtZero() {
+        assertEquals(0, UnreadCounter.afterRead(2L, 6));
+    }
+
+    @Test
+    public void afterRead_repairsNegativeCounter() {
+        assertEquals(1, UnreadCounter.afterRead(1L, 0));
+        assertEquals(0, UnreadCounter.afterRead(-4L, 0));
+    }
+
+    @Test
+    public void afterRead_missingDocumentStaysZero() {
+        assertEquals(0, UnreadCounter.afterRead(null, 3));
+    }
+
+    @Test
+    public void afterRead_negativeSeenIsIgnored() {
+        assertEquals(3, UnreadCounter.afterRead(3L, -2));
+    }
+}
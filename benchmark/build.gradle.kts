@@ -0,0 +1,41 @@
+// JVM-only JMH benchmarks for the plain-Java hot paths of :app.
+// No device or emulator needed: ./gradlew :benchmark:jmh
+// Results land in benchmark/build/results/jmh/results.json
+
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+// Compile the Android-free classes straight out of :app so the benchmarks always
+// measure the code that ships. Everything listed here must stay free of android.* imports.
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("../app/src/main/java"))
+            include(
+                "com/example/focus/LockDecision.java",
+                "com/example/focus/LockPolicySnapshot.java",
+                "com/example/focus/PackageMatcher.java",
+                "com/example/focus/LaunchCoalescer.java",
+                "com/example/focus/LatencyHistogram.java",
+                "com/example/focus/SessionAggregator.java",
+                "com/example/focus/StreakEngine.java",
+                "com/example/focus/AppSearchIndex.java"
+            )
+        }
+    }
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
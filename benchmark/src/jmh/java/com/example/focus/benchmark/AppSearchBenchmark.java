@@ -0,0 +1,74 @@
+package com.example.focus.benchmark;
+
+import com.example.focus.AppSearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cost of one keystroke in the app picker; the budget is a frame (16 ms) at 500 apps
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AppSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "Photo", "Music", "Chat", "Maps", "Notes", "Camera", "Video", "Mail", "Games", "Store",
+            "Weather", "Clock", "Files", "Calendar", "News", "Wallet", "Fitness", "Reader", "Radio", "Drive"
+    };
+
+    @Param({"100", "500"})
+    public int appCount;
+
+    private AppSearchIndex mIndex;
+    private String[] mLabels;
+    private String[] mPackageNames;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mLabels = new String[appCount];
+        mPackageNames = new String[appCount];
+        for (int i = 0; i < appCount; i++) {
+            String first = WORDS[random.nextInt(WORDS.length)];
+            String second = WORDS[random.nextInt(WORDS.length)];
+            mLabels[i] = first + " " + second + " " + i;
+            mPackageNames[i] = "com.vendor" + (i % 40) + "." + first.toLowerCase() + second.toLowerCase();
+        }
+        mIndex = new AppSearchIndex(mLabels, mPackageNames);
+    }
+
+    @Benchmark
+    public int[] singleLetter() {
+        return mIndex.search("c");
+    }
+
+    @Benchmark
+    public int[] wordPrefix() {
+        return mIndex.search("cam");
+    }
+
+    @Benchmark
+    public int[] substring() {
+        return mIndex.search("otoca");
+    }
+
+    @Benchmark
+    public int[] noMatch() {
+        return mIndex.search("zzqx");
+    }
+
+    // Paid once per picker opening, on the query thread
+    @Benchmark
+    public AppSearchIndex buildIndex() {
+        return new AppSearchIndex(mLabels, mPackageNames);
+    }
+}
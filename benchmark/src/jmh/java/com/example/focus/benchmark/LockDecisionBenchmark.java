@@ -0,0 +1,80 @@
+package com.example.focus.benchmark;
+
+import com.example.focus.LockDecision;
+import com.example.focus.LockPolicySnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Cost of one AppLockService decision for the packages a child typically swipes through
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LockDecisionBenchmark {
+
+    @Param({"10", "60"})
+    public int lockedAppCount;
+
+    private LockPolicySnapshot mPolicy;
+    private Set<String> mLockedApps;
+    private long mNow;
+
+    private final String mLockedPackage = "com.vendor3.app";
+    private final String mWildcardPackage = "com.facebook.katana";
+    private final String mFreePackage = "com.google.android.calculator";
+    private final String mClassName = "com.google.android.calculator.Calculator";
+
+    @Setup
+    public void setUp() {
+        mLockedApps = new HashSet<>();
+        mLockedApps.add("com.facebook.*");
+        for (int i = 0; mLockedApps.size() < lockedAppCount; i++) {
+            mLockedApps.add("com.vendor" + i + ".app");
+        }
+
+        Map<String, Long> bypass = new HashMap<>();
+        bypass.put("com.vendor1.app", Long.MAX_VALUE);
+
+        mPolicy = new LockPolicySnapshot(false, true, true, 0, mLockedApps, bypass);
+        mNow = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public int lockedApp() {
+        return LockDecision.decide(mPolicy, mLockedPackage, mClassName, mNow);
+    }
+
+    @Benchmark
+    public int wildcardApp() {
+        return LockDecision.decide(mPolicy, mWildcardPackage, mClassName, mNow);
+    }
+
+    @Benchmark
+    public int unlockedApp() {
+        return LockDecision.decide(mPolicy, mFreePackage, mClassName, mNow);
+    }
+
+    @Benchmark
+    public int settingsApp() {
+        return LockDecision.decide(mPolicy, LockDecision.SETTINGS_PACKAGE, "com.android.settings.Settings", mNow);
+    }
+
+    // Paid once per preference change, not per event
+    @Benchmark
+    public LockPolicySnapshot rebuildSnapshot() {
+        return new LockPolicySnapshot(false, true, true, 0, mLockedApps, Collections.<String, Long>emptyMap());
+    }
+}
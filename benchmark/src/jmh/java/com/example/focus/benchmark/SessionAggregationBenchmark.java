@@ -0,0 +1,85 @@
+package com.example.focus.benchmark;
+
+import com.example.focus.SessionAggregator;
+import com.example.focus.StreakEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+// Stats report aggregation over the rollups of a student's session history (about 3 sessions a day)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionAggregationBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int sessionCount;
+
+    private long mNow;
+
+    // The same history as rollups: days of the last 37, one total per 30 days, every active day
+    private int[] mDays;
+    private long[] mDayMinutes;
+    private long[] mDayCounts;
+    private int mDayCount;
+    private long[] mMonthMinutes;
+    private long[] mMonthCounts;
+    private int mMonthCount;
+    private int[] mActiveDays;
+    private int mActiveDayCount;
+    private int mToday;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mNow = System.currentTimeMillis();
+        long[] timestamps = new long[sessionCount];
+        long[] durations = new long[sessionCount];
+        long eightHours = TimeUnit.HOURS.toMillis(8);
+        for (int i = 0; i < sessionCount; i++) {
+            // Newest first, like the Firestore query
+            timestamps[i] = mNow - i * eightHours - random.nextInt(3_600_000);
+            durations[i] = 15 + random.nextInt(46);
+        }
+
+        TimeZone timeZone = TimeZone.getDefault();
+        mToday = StreakEngine.toEpochDay(mNow, timeZone);
+        int oldest = StreakEngine.toEpochDay(timestamps[sessionCount - 1], timeZone);
+        int span = mToday - oldest + 1;
+        mDays = new int[span];
+        mDayMinutes = new long[span];
+        mDayCounts = new long[span];
+        mMonthMinutes = new long[span / 30 + 1];
+        mMonthCounts = new long[span / 30 + 1];
+        mActiveDays = new int[span];
+        for (int i = 0; i < sessionCount; i++) {
+            int day = StreakEngine.toEpochDay(timestamps[i], timeZone);
+            int age = mToday - day;
+            if (mDayCounts[age]++ == 0) mActiveDays[mActiveDayCount++] = day;
+            mDays[age] = day;
+            mDayMinutes[age] += durations[i];
+            mMonthMinutes[age / 30] += durations[i];
+            mMonthCounts[age / 30]++;
+        }
+        mDayCount = Math.min(span, 37);
+        mMonthCount = mMonthMinutes.length;
+    }
+
+    // What StatsEngine runs once per user and cache miss
+    @Benchmark
+    public SessionAggregator.Report aggregateReport() {
+        return SessionAggregator.aggregateReport(mDays, mDayMinutes, mDayCounts, mDayCount,
+                mMonthMinutes, mMonthCounts, mMonthCount, mActiveDays, mActiveDayCount,
+                mToday - 6, mToday - 30, mNow);
+    }
+}
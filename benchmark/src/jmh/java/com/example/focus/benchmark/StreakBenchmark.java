@@ -0,0 +1,104 @@
+package com.example.focus.benchmark;
+
+import com.example.focus.StreakEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Worst case for the streak queries: a student who studied every single day.
+// legacy* keeps the old Calendar + HashSet<Long> walk around as the baseline.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StreakBenchmark {
+
+    @Param({"30", "365", "1095"})
+    public int historyDays;
+
+    private long[] mTimestamps;
+    private StreakEngine mEngine;
+    private Set<Long> mLegacyDays;
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        mNow = System.currentTimeMillis();
+        mTimestamps = new long[historyDays];
+        mEngine = new StreakEngine();
+        mLegacyDays = new HashSet<>();
+        for (int day = 0; day < historyDays; day++) {
+            mTimestamps[day] = mNow - TimeUnit.DAYS.toMillis(day);
+            mEngine.addTimestamp(mTimestamps[day]);
+            mLegacyDays.add(legacyStartOfDay(mTimestamps[day]));
+        }
+    }
+
+    @Benchmark
+    public int currentStreak() {
+        return mEngine.currentStreak(mNow);
+    }
+
+    @Benchmark
+    public int longestStreak() {
+        return mEngine.longestStreak();
+    }
+
+    // Building the day set from raw session timestamps, as the screens do per snapshot
+    @Benchmark
+    public int buildAndCurrentStreak() {
+        StreakEngine engine = new StreakEngine();
+        for (long timestamp : mTimestamps) {
+            engine.addTimestamp(timestamp);
+        }
+        return engine.currentStreak(mNow);
+    }
+
+    @Benchmark
+    public int legacyCurrentStreak() {
+        return legacyStreak(mLegacyDays, mNow);
+    }
+
+    @Benchmark
+    public int legacyBuildAndCurrentStreak() {
+        Set<Long> days = new HashSet<>();
+        for (long timestamp : mTimestamps) {
+            days.add(legacyStartOfDay(timestamp));
+        }
+        return legacyStreak(days, mNow);
+    }
+
+    private static long legacyStartOfDay(long millis) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(millis);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    private static int legacyStreak(Set<Long> uniqueDays, long nowMillis) {
+        int streak = 0;
+        Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(legacyStartOfDay(nowMillis));
+        if (!uniqueDays.contains(day.getTimeInMillis())) {
+            day.add(Calendar.DAY_OF_YEAR, -1);
+        }
+        while (uniqueDays.contains(day.getTimeInMillis())) {
+            streak++;
+            day.add(Calendar.DAY_OF_YEAR, -1);
+        }
+        return streak;
+    }
+}
@@ -15,4 +15,5 @@ dependencyResolutionManagement {
 }
 rootProject.name = "focus"
 include(":app")
+include(":benchmark")
 